@@ -0,0 +1,162 @@
+package com.excellence.widget.text;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 长文本滚动绘制的基准：10、100、1000行的文本在固定高度的可见区域内逐像素滚动，
+ * 对比{@link AutoVerticalScrollTextView}的两种绘制：
+ * 只有控件自身的裁剪时直接{@link Layout#draw(Canvas)}，以及再按可见行范围裁剪一次
+ * 统计每帧绘制的行数及耗时：{@link Layout#draw(Canvas)}本身按画布的裁剪区域只遍历可见的行，
+ * 两种方式绘制的行数相同，且不随文本长度增长
+ */
+@RunWith(AndroidJUnit4.class)
+public class VisibleLinesBenchmark {
+
+    private static final String TAG = VisibleLinesBenchmark.class.getSimpleName();
+
+    private static final int[] LINE_COUNTS = {10, 100, 1000};
+    private static final int VIEWPORT_WIDTH = 600;
+    private static final int VIEWPORT_HEIGHT = 200;
+    private static final float TEXT_SIZE = 24;
+    private static final int WARMUP_FRAMES = 500;
+    private static final int FRAMES = 2000;
+
+    @Test
+    public void drawnLines_independentOfTextLength() {
+        int[] maxLinesPerFrame = new int[LINE_COUNTS.length];
+        for (int i = 0; i < LINE_COUNTS.length; i++) {
+            int lineCount = LINE_COUNTS[i];
+            StaticLayout layout = createLayout(lineCount);
+            assertTrue(layout.getHeight() > VIEWPORT_HEIGHT);
+            CountingCanvas canvas = new CountingCanvas();
+
+            Result clipped = measure(canvas, layout, false);
+            Result windowed = measure(canvas, layout, true);
+            Log.i(TAG, String.format("%4d lines: view clip %6d ns/frame %.1f lines/frame | line clip %6d ns/frame %.1f lines/frame",
+                    lineCount, clipped.nanosPerFrame, clipped.linesPerFrame,
+                    windowed.nanosPerFrame, windowed.linesPerFrame));
+
+            /**
+             * 可见区域最多跨越的行数：完整显示的行加上首尾各一行
+             */
+            int visibleLines = (int) Math.ceil((float) VIEWPORT_HEIGHT * layout.getLineCount() / layout.getHeight()) + 1;
+            assertTrue(clipped.linesPerFrame > 0);
+            assertEquals(clipped.linesPerFrame, windowed.linesPerFrame, 0.001);
+            assertTrue(lineCount + " lines: " + clipped.maxLinesPerFrame, clipped.maxLinesPerFrame <= visibleLines);
+            maxLinesPerFrame[i] = clipped.maxLinesPerFrame;
+        }
+        assertEquals(maxLinesPerFrame[1], maxLinesPerFrame[2]);
+    }
+
+    private static StaticLayout createLayout(int lineCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            if (i > 0) {
+                text.append('\n');
+            }
+            text.append("Line ").append(i).append(" of the scrolling announcement");
+        }
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(TEXT_SIZE);
+        return new StaticLayout(text, paint, VIEWPORT_WIDTH, Layout.Alignment.ALIGN_NORMAL, 1, 0, false);
+    }
+
+    /**
+     * 逐像素滚动绘制，与{@link AutoVerticalScrollTextView}的onDraw一致：控件裁剪到自身区域，平移到滚动位置后绘制
+     *
+     * @param isLineClip 是否再按可见行范围裁剪
+     */
+    private static Result measure(CountingCanvas canvas, Layout layout, boolean isLineClip) {
+        int scrollRange = Math.max(1, layout.getHeight() - VIEWPORT_HEIGHT);
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            drawFrame(canvas, layout, i % scrollRange, isLineClip);
+        }
+        canvas.drawnLines = 0;
+        int maxLinesPerFrame = 0;
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            int before = canvas.drawnLines;
+            drawFrame(canvas, layout, i % scrollRange, isLineClip);
+            maxLinesPerFrame = Math.max(maxLinesPerFrame, canvas.drawnLines - before);
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        return new Result(elapsed / FRAMES, (float) canvas.drawnLines / FRAMES, maxLinesPerFrame);
+    }
+
+    private static void drawFrame(Canvas canvas, Layout layout, int top, boolean isLineClip) {
+        canvas.save();
+        canvas.clipRect(0, 0, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        canvas.translate(0, -top);
+        if (isLineClip) {
+            int firstLine = layout.getLineForVertical(top);
+            int lastLine = layout.getLineForVertical(top + VIEWPORT_HEIGHT);
+            canvas.clipRect(0, layout.getLineTop(firstLine), layout.getWidth(), layout.getLineBottom(lastLine));
+        }
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    private static final class Result {
+
+        private final long nanosPerFrame;
+        private final float linesPerFrame;
+        private final int maxLinesPerFrame;
+
+        private Result(long nanosPerFrame, float linesPerFrame, int maxLinesPerFrame) {
+            this.nanosPerFrame = nanosPerFrame;
+            this.linesPerFrame = linesPerFrame;
+            this.maxLinesPerFrame = maxLinesPerFrame;
+        }
+    }
+
+    /**
+     * 软件画布，统计绘制的文本次数；纯文本每行只绘制一次
+     */
+    private static final class CountingCanvas extends Canvas {
+
+        private int drawnLines = 0;
+
+        private CountingCanvas() {
+            super(Bitmap.createBitmap(VIEWPORT_WIDTH, VIEWPORT_HEIGHT, Bitmap.Config.ALPHA_8));
+        }
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+            drawnLines++;
+            super.drawText(text, index, count, x, y, paint);
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            drawnLines++;
+            super.drawText(text, x, y, paint);
+        }
+
+        @Override
+        public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+            drawnLines++;
+            super.drawText(text, start, end, x, y, paint);
+        }
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+            drawnLines++;
+            super.drawText(text, start, end, x, y, paint);
+        }
+    }
+}
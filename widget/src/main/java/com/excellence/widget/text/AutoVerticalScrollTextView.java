@@ -3,18 +3,45 @@ package com.excellence.widget.text;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.os.Handler;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.os.Build;
+import android.os.Process;
 import android.text.Layout;
+import android.text.Spanned;
 import android.text.StaticLayout;
 import android.text.TextPaint;
+import android.text.style.CharacterStyle;
+import android.text.style.ClickableSpan;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.TextAppearanceSpan;
 import android.util.AttributeSet;
+import android.util.LruCache;
+import android.util.TypedValue;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
 
-import com.excellence.basetoolslibrary.utils.ViewUtils;
 import com.excellence.widget.R;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.leanback.widget.BaseGridView;
+import androidx.leanback.widget.OnChildViewHolderSelectedListener;
+import androidx.recyclerview.widget.RecyclerView;
 
 /**
  * 基于https://github.com/EngrZhou/AutoVerticalScrollTextView改善
@@ -27,6 +54,36 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
     private static final int SPEED_SCALE = 50;
     private static final int TYPE_TRANSLATE = 0;
     private static final int TYPE_SCROLL_TO = 1;
+    private static final int TYPE_RENDER_NODE = 2;
+    private static final int TYPE_PAGE = 3;
+    private static final int DEFAULT_PAGE_DWELL = 3 * 1000;
+    private static final int DEFAULT_PAGE_DURATION = 600;
+    private static final int DEFAULT_MAX_STREAM_LINES = 200;
+    private static final Interpolator PAGE_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    /**
+     * 缩小字号的结果，所有实例共用：列表复用时相同的标题不再重复查找；
+     * 只缓存纯文本，带样式的文本按对象匹配，重新绑定后不会再命中，缓存只会持有样式引用的资源
+     */
+    private static final LruCache<FitKey, Float> FIT_TEXT_SIZE_CACHE = new LruCache<>(256);
+    /**
+     * 检查样式是否修改绘制颜色的画笔及标记色，见{@link #hasColorSpans(CharSequence)}
+     */
+    private static final TextPaint EMPTY_PAINT = new TextPaint();
+    private static final TextPaint COLOR_PROBE_PAINT = new TextPaint();
+    private static final int COLOR_PROBE = 0x01020304;
+    private static final long NANOS_PER_SECOND = 1000_000_000L;
+    private static final long NANOS_PER_MILLI = 1000_000L;
+    /**
+     * 后台排版线程，所有实例共用
+     */
+    private static final ExecutorService LAYOUT_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, TAG + "-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * scroll delay time
@@ -36,7 +93,6 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
     private int mSpeed = 1;
     private int mMaxHeight;
     private boolean isScrolled = false;
-    private Handler mMarquee = null;
     private StaticLayout mTextLayout;
     private int mNowPoint;
     private int mMyHeight;
@@ -44,8 +100,113 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
     /**
      * 滚动方式 0：绘制文本高度，但是少于三行时，Series detail会有重叠的情况；
      *         1：通过TextView#scrollBy控制，但是小窗口Channel播放VideoView刷新时，会频繁闪烁
+     *         2：文本只录制一次到RenderNode，滚动时只修改平移属性，不重新绘制文本（Android Q以下退回0）
+     *         3：翻页，按行边界每次滚动一页后停留，停留期间只有一个延时消息，不请求任何帧
      */
     private int mScrollType = TYPE_TRANSLATE;
+    /**
+     * 帧驱动模式的滚动速度，单位px/s，大于0时按帧时间戳计算位移，不再按{@link #mStep}、{@link #mSpeed}定时移动
+     */
+    private int mVelocity = 0;
+    /**
+     * 帧驱动模式的最大帧率，0表示不限制，如性能较差的盒子设为30
+     */
+    private int mMaxFps = 0;
+    private float mScrollPoint;
+    private long mLastFrameTimeNanos = 0;
+    /**
+     * 定时滚动模式累计的、还未移动的时间
+     */
+    private long mStepElapsedNanos = 0;
+    /**
+     * 是否已订阅{@link MarqueeDriver}
+     */
+    private boolean isMarqueeRunning = false;
+    /**
+     * 连续循环：文本末尾间隔{@link #mLoopGap}后接着绘制一份，滚动位置按周期回绕，不重置、不重新等待
+     */
+    private boolean isContinuousLoop = false;
+    private int mLoopGap = 0;
+    /**
+     * 翻页模式：每页停留时间、翻页动画时长，单位ms；每次滚动的行数，0表示一整页
+     */
+    private int mPageDwell = DEFAULT_PAGE_DWELL;
+    private int mPageDuration = DEFAULT_PAGE_DURATION;
+    private int mPageLines = 0;
+    /**
+     * 当前翻页动画的起止位置，文本坐标
+     */
+    private int mPageFrom;
+    private int mPageTo;
+    /**
+     * 上下渐隐的长度，单位px，0表示不渐隐
+     */
+    private int mFadeEdgeLength = 0;
+    private LinearGradient mFadeShader = null;
+    private final Matrix mFadeMatrix = new Matrix();
+    private int mFadeShaderHeight;
+    private int mFadeShaderColor;
+    private int mFadeShaderLength;
+    /**
+     * 最近检查过是否带颜色样式的文本，按对象缓存，避免每帧遍历样式
+     */
+    private CharSequence mColorSpanCheckedText = null;
+    private boolean hasColorSpans = false;
+    /**
+     * 先缩小后滚动：超出时字号最小缩小到该值，仍然超出才滚动，单位px，0表示不缩小
+     */
+    private float mFitMinTextSize = 0;
+    /**
+     * 设置的字号，缩小字号的上限
+     */
+    private float mFitMaxTextSize;
+    private boolean isFittingTextSize = false;
+    private TextPaint mFitPaint = null;
+    /**
+     * 只滚动选中项：在列表中只有选中或获得焦点的item滚动，其他item静止、不调度任何消息和帧
+     */
+    private boolean isMarqueeOnSelected = false;
+    /**
+     * 所在的列表，未在列表中时为null，按焦点判断
+     */
+    private BaseGridView mGridView = null;
+    private boolean isSelectedItem = false;
+    /**
+     * 流式追加：{@link #appendLine(CharSequence)}后按段落分别排版，不再使用TextView的文本；
+     * 追加只排版新的段落，已滚出顶部的段落丢弃，最多保留{@link #mMaxStreamLines}段
+     */
+    private boolean isStreaming = false;
+    private ArrayDeque<StreamLine> mStreamLines = null;
+    private int mStreamHeight = 0;
+    private int mMaxStreamLines = DEFAULT_MAX_STREAM_LINES;
+    /**
+     * {@link #mTextLayout}对应的排版参数，参数不变时复用，不再重新断行
+     */
+    private final TextLayoutKey mTextLayoutKey = new TextLayoutKey();
+    private int mLayoutBuildCount = 0;
+    private int mLayoutReuseCount = 0;
+    /**
+     * 录制了{@link #mTextLayout}的RenderNode，及录制时的排版、颜色
+     */
+    private RenderNode mTextNode = null;
+    private Layout mRecordedLayout = null;
+    private int mRecordedColor;
+    /**
+     * {@link #setTextAsync(CharSequence)}：每次设置文本递增，后台结果不是最新的直接丢弃
+     */
+    private int mTextGeneration = 0;
+    private Future<?> mPendingTextFuture = null;
+    /**
+     * 后台排好的StaticLayout，在随后的重置中直接使用
+     */
+    private StaticLayout mAsyncLayout = null;
+    private final TextLayoutKey mAsyncLayoutKey = new TextLayoutKey();
+    private boolean isApplyingAsyncText = false;
+    /**
+     * 是否有待执行的重置：同一帧内多次setText、setVisibility只重置一次
+     */
+    private boolean isResetPending = false;
+    private final Runnable mResetRunnable = this::onResetFrame;
 
     public AutoVerticalScrollTextView(Context context) {
         this(context, null);
@@ -62,20 +223,224 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
 
     @Override
     public void setText(CharSequence text, BufferType type) {
+        if (!isApplyingAsyncText) {
+            /**
+             * 同步设置的文本覆盖还未完成的异步文本
+             */
+            cancelPendingText();
+        }
         super.setText(text, type);
+        if (isStreaming) {
+            /**
+             * 重新设置文本，退出流式追加
+             */
+            isStreaming = false;
+            mStreamLines.clear();
+            mStreamHeight = 0;
+        }
+        requestReset();
+    }
 
-        reset();
-        requestLayout();
-        ViewUtils.observeViewLayout(this, this::reset);
+    /**
+     * 流式追加一段文本，如实时公告、聊天消息：只排版新的段落，接在已有内容后面，不重置滚动位置；
+     * 内容超出时立即滚动（不等待delayStart），滚动到末尾后停止，追加新的段落后继续；
+     * 已滚出顶部的段落自动丢弃，每次追加的开销与历史长度无关
+     * 需要确定的高度（固定高度或match_parent），调用{@link #setText(CharSequence)}退出
+     *
+     * @param line 段落
+     */
+    public void appendLine(CharSequence line) {
+        if (mStreamLines == null) {
+            mStreamLines = new ArrayDeque<>();
+        }
+        if (!isStreaming) {
+            isStreaming = true;
+            stopMarquee();
+            mScrollPoint = 0;
+            mNowPoint = 0;
+            if (mScrollType == TYPE_SCROLL_TO) {
+                scrollTo(0, 0);
+            }
+        }
+        StreamLine streamLine = new StreamLine(line == null ? "" : line);
+        buildStreamLine(streamLine, getWidth());
+        mStreamLines.addLast(streamLine);
+        mStreamHeight += streamLine.getHeight();
+        if (mStreamLines.size() > mMaxStreamLines) {
+            trimHead(mStreamLines.size() - mMaxStreamLines);
+        } else {
+            updateStreamScroll();
+        }
+        invalidate();
+    }
+
+    /**
+     * 丢弃最前面的段落，滚动位置同步调整，仍显示的内容不跳动
+     *
+     * @param count 段落数量
+     */
+    public void trimHead(int count) {
+        if (!isStreaming) {
+            return;
+        }
+        for (int i = 0; i < count && !mStreamLines.isEmpty(); i++) {
+            int height = mStreamLines.pollFirst().getHeight();
+            mStreamHeight -= height;
+            mScrollPoint += height;
+        }
+        /**
+         * 丢弃了仍在显示的段落时，剩余内容从顶部开始显示
+         */
+        mScrollPoint = Math.min(0, mScrollPoint);
+        mNowPoint = Math.round(mScrollPoint);
+        updateStreamScroll();
+        invalidate();
+    }
+
+    public int getStreamLineCount() {
+        return isStreaming ? mStreamLines.size() : 0;
+    }
+
+    public int getMaxStreamLines() {
+        return mMaxStreamLines;
+    }
+
+    /**
+     * @param maxStreamLines 流式追加最多保留的段落数，超出时丢弃最前面的
+     */
+    public void setMaxStreamLines(int maxStreamLines) {
+        mMaxStreamLines = Math.max(1, maxStreamLines);
+        if (isStreaming && mStreamLines.size() > mMaxStreamLines) {
+            trimHead(mStreamLines.size() - mMaxStreamLines);
+        }
+    }
+
+    private void buildStreamLine(StreamLine streamLine, int width) {
+        if (width <= 0) {
+            /**
+             * 还未布局，在重置时按宽度排版
+             */
+            streamLine.layout = null;
+            return;
+        }
+        streamLine.layout = new StaticLayout(streamLine.text, new TextPaint(getPaint()), width,
+                Layout.Alignment.ALIGN_NORMAL, getLineSpacingMultiplier(), getLineSpacingExtra(), false);
+        streamLine.width = width;
+    }
+
+    /**
+     * 追加、丢弃后更新是否超出；超出且未在滚动时立即继续滚动
+     */
+    private void updateStreamScroll() {
+        mMyHeight = mStreamHeight;
+        int measureHeight = getMeasuredHeight();
+        isScrolled = measureHeight > 0 && mStreamHeight > measureHeight;
+        if (!isScrolled) {
+            stopMarquee();
+            mScrollPoint = 0;
+            mNowPoint = 0;
+            return;
+        }
+        if (isScrollEnabled && !isMarqueeRunning && isShownInWindow()
+                && (!isMarqueeOnSelected || isSelectedItem)) {
+            removeCallbacks(mMarqueeStartRunnable);
+            mMarqueeStartRunnable.run();
+        }
+    }
+
+    /**
+     * 宽度变化时重新排版所有段落
+     */
+    private void resetStreamParams() {
+        int width = getWidth();
+        mStreamHeight = 0;
+        for (StreamLine streamLine : mStreamLines) {
+            if (streamLine.layout == null || streamLine.width != width) {
+                buildStreamLine(streamLine, width);
+            }
+            mStreamHeight += streamLine.getHeight();
+        }
+    }
+
+    /**
+     * 自身及父布局可见，并且窗口可见
+     */
+    private boolean isShownInWindow() {
+        return isShown() && getWindowVisibility() == View.VISIBLE;
+    }
+
+    private boolean isPageMode() {
+        return mScrollType == TYPE_PAGE && !isStreaming;
     }
 
     @Override
     public void setVisibility(int visibility) {
         super.setVisibility(visibility);
         if (visibility == View.VISIBLE) {
-            reset();
-            requestLayout();
-            ViewUtils.observeViewLayout(this, this::reset);
+            requestReset();
+        }
+    }
+
+    /**
+     * 异步设置文本：在后台线程测量、断行，完成后在主线程替换；完成前继续显示旧文本
+     * 完成时宽度、画笔已变化则只使用预计算的文本，重新排版；再次设置文本会取消未完成的任务
+     *
+     * @param text 文本
+     */
+    public void setTextAsync(CharSequence text) {
+        cancelPendingText();
+        final int generation = mTextGeneration;
+        final int width = getWidth();
+        final TextPaint paint = new TextPaint(getPaint());
+        final float spacingMult = getLineSpacingMultiplier();
+        final float spacingAdd = getLineSpacingExtra();
+        final PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(this);
+        final CharSequence source = text == null ? "" : text;
+        mPendingTextFuture = LAYOUT_EXECUTOR.submit(() -> {
+            PrecomputedTextCompat precomputedText = PrecomputedTextCompat.create(source, params);
+            StaticLayout layout = null;
+            if (width > 0) {
+                layout = new StaticLayout(precomputedText, paint, width, Layout.Alignment.ALIGN_NORMAL,
+                        spacingMult, spacingAdd, false);
+            }
+            final StaticLayout result = layout;
+            post(() -> onTextPrecomputed(generation, source, precomputedText, result, width, paint, spacingMult, spacingAdd));
+        });
+    }
+
+    private void onTextPrecomputed(int generation, CharSequence source, PrecomputedTextCompat text, StaticLayout layout,
+                                   int width, TextPaint paint, float spacingMult, float spacingAdd) {
+        if (generation != mTextGeneration) {
+            return;
+        }
+        mPendingTextFuture = null;
+        if (!text.getParams().equals(TextViewCompat.getTextMetricsParams(this))) {
+            /**
+             * 计算期间字号、字体、语言等已变化，setPrecomputedText会抛出IllegalArgumentException，
+             * 预计算的结果不可用，按普通文本设置
+             */
+            mAsyncLayout = null;
+            setText(source);
+            return;
+        }
+        mAsyncLayout = layout;
+        if (layout != null) {
+            mAsyncLayoutKey.set(null, width, paint, spacingMult, spacingAdd);
+        }
+        isApplyingAsyncText = true;
+        try {
+            TextViewCompat.setPrecomputedText(this, text);
+        } finally {
+            isApplyingAsyncText = false;
+        }
+    }
+
+    private void cancelPendingText() {
+        mTextGeneration++;
+        mAsyncLayout = null;
+        if (mPendingTextFuture != null) {
+            mPendingTextFuture.cancel(false);
+            mPendingTextFuture = null;
         }
     }
 
@@ -88,8 +453,20 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
             mMaxHeight = array.getDimensionPixelOffset(R.styleable.AutoVerticalScrollTextView_maxHeight, 0);
             isScrollEnabled = array.getBoolean(R.styleable.AutoVerticalScrollTextView_scrollEnabled, isScrollEnabled);
             mScrollType = array.getInt(R.styleable.AutoVerticalScrollTextView_scrollType, mScrollType);
+            mVelocity = array.getDimensionPixelSize(R.styleable.AutoVerticalScrollTextView_velocity, mVelocity);
+            mMaxFps = array.getInt(R.styleable.AutoVerticalScrollTextView_maxFps, mMaxFps);
+            isContinuousLoop = array.getBoolean(R.styleable.AutoVerticalScrollTextView_continuousLoop, isContinuousLoop);
+            mLoopGap = array.getDimensionPixelSize(R.styleable.AutoVerticalScrollTextView_loopGap, mLoopGap);
+            mPageDwell = array.getInt(R.styleable.AutoVerticalScrollTextView_pageDwell, mPageDwell);
+            mPageDuration = array.getInt(R.styleable.AutoVerticalScrollTextView_pageDuration, mPageDuration);
+            mPageLines = array.getInt(R.styleable.AutoVerticalScrollTextView_pageLines, mPageLines);
+            mFadeEdgeLength = array.getDimensionPixelSize(R.styleable.AutoVerticalScrollTextView_fadeEdgeLength, mFadeEdgeLength);
+            mFitMinTextSize = array.getDimension(R.styleable.AutoVerticalScrollTextView_fitMinTextSize, mFitMinTextSize);
+            isMarqueeOnSelected = array.getBoolean(R.styleable.AutoVerticalScrollTextView_marqueeOnSelected, isMarqueeOnSelected);
+            mMaxStreamLines = array.getInt(R.styleable.AutoVerticalScrollTextView_maxStreamLines, mMaxStreamLines);
             array.recycle();
         }
+        mFitMaxTextSize = getTextSize();
         setSingleLine(false);
         if (mMaxHeight > 0) {
             setMaxHeight(mMaxHeight);
@@ -120,17 +497,187 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
         this.mSpeed = speed;
     }
 
+    public int getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * @param velocity 帧驱动模式的滚动速度，单位px/s，0表示使用{@link #setStep(int)}、{@link #setSpeed(int)}定时滚动
+     */
+    public void setVelocity(int velocity) {
+        this.mVelocity = velocity;
+    }
+
+    public int getMaxFps() {
+        return mMaxFps;
+    }
+
+    /**
+     * @param maxFps 帧驱动模式的最大帧率，0表示不限制
+     */
+    public void setMaxFps(int maxFps) {
+        this.mMaxFps = maxFps;
+    }
+
+    public boolean isContinuousLoop() {
+        return isContinuousLoop;
+    }
+
+    /**
+     * @param continuousLoop 连续循环，适合全天滚动的新闻条
+     */
+    public void setContinuousLoop(boolean continuousLoop) {
+        isContinuousLoop = continuousLoop;
+        invalidate();
+    }
+
+    public int getLoopGap() {
+        return mLoopGap;
+    }
+
+    /**
+     * @param loopGap 连续循环时两份文本的间隔，单位px
+     */
+    public void setLoopGap(int loopGap) {
+        mLoopGap = loopGap;
+        invalidate();
+    }
+
+    public int getPageDwell() {
+        return mPageDwell;
+    }
+
+    /**
+     * @param pageDwell 翻页模式每页停留时间，单位ms
+     */
+    public void setPageDwell(int pageDwell) {
+        mPageDwell = pageDwell;
+    }
+
+    public int getPageDuration() {
+        return mPageDuration;
+    }
+
+    /**
+     * @param pageDuration 翻页动画时长，单位ms
+     */
+    public void setPageDuration(int pageDuration) {
+        mPageDuration = pageDuration;
+    }
+
+    public int getPageLines() {
+        return mPageLines;
+    }
+
+    /**
+     * @param pageLines 翻页模式每次滚动的行数，0表示一整页
+     */
+    public void setPageLines(int pageLines) {
+        mPageLines = pageLines;
+    }
+
+    public int getFadeEdgeLength() {
+        return mFadeEdgeLength;
+    }
+
+    /**
+     * 渐隐使用文字颜色的渐变作为画笔的着色器，会覆盖样式设置的颜色，如{@link ForegroundColorSpan}、
+     * 链接（{@link ClickableSpan}）、带颜色的{@link TextAppearanceSpan}，
+     * 因此带这类样式的文本（流式追加时按段落判断）不渐隐
+     *
+     * @param fadeEdgeLength 滚动时上下渐隐的长度，单位px，0表示不渐隐
+     */
+    public void setFadeEdgeLength(int fadeEdgeLength) {
+        mFadeEdgeLength = fadeEdgeLength;
+        invalidate();
+    }
+
+    public float getFitMinTextSize() {
+        return mFitMinTextSize;
+    }
+
+    /**
+     * @param fitMinTextSize 超出时先缩小字号，最小到该值仍然超出才滚动，单位px，0表示不缩小
+     */
+    public void setFitMinTextSize(float fitMinTextSize) {
+        mFitMinTextSize = fitMinTextSize;
+        if (mFitMinTextSize <= 0 && getTextSize() != mFitMaxTextSize) {
+            setFitTextSize(mFitMaxTextSize);
+        }
+        requestReset();
+    }
+
+    @Override
+    public void setTextSize(int unit, float size) {
+        super.setTextSize(unit, size);
+        if (!isFittingTextSize) {
+            mFitMaxTextSize = getTextSize();
+            requestReset();
+        }
+    }
+
+    public boolean isMarqueeOnSelected() {
+        return isMarqueeOnSelected;
+    }
+
+    /**
+     * @param marqueeOnSelected 只有所在item被选中或获得焦点时才滚动
+     */
+    public void setMarqueeOnSelected(boolean marqueeOnSelected) {
+        if (isMarqueeOnSelected == marqueeOnSelected) {
+            return;
+        }
+        if (ViewCompat.isAttachedToWindow(this)) {
+            unregisterSelectedListener();
+            isMarqueeOnSelected = marqueeOnSelected;
+            registerSelectedListener();
+        } else {
+            isMarqueeOnSelected = marqueeOnSelected;
+        }
+        requestReset();
+    }
+
     public boolean isScrollEnabled() {
         return isScrollEnabled;
     }
 
     public void setScrollEnabled(boolean scrollEnabled) {
         isScrollEnabled = scrollEnabled;
+        requestReset();
+    }
+
+    /**
+     * 合并重置：在下一帧动画阶段执行一次；该帧还需要重新布局时，推迟到{@link #onLayout}中，按新的尺寸判断是否超出
+     */
+    private void requestReset() {
+        /**
+         * 父类构造时setText会回调到这里，此时还未初始化，由onAttachedToWindow重置
+         */
+        if (mResetRunnable == null || isResetPending) {
+            return;
+        }
+        isResetPending = true;
+        postOnAnimation(mResetRunnable);
+    }
+
+    private void onResetFrame() {
+        if (!isResetPending || isLayoutRequested()) {
+            return;
+        }
         reset();
     }
 
+    private void cancelPendingReset() {
+        if (isResetPending) {
+            isResetPending = false;
+            removeCallbacks(mResetRunnable);
+        }
+    }
+
     public void reset() {
+        cancelPendingReset();
         mNowPoint = 0;
+        mScrollPoint = 0;
         if (mScrollType == TYPE_SCROLL_TO) {
             scrollTo(0, mNowPoint);
         }
@@ -142,9 +689,21 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        /**
+         * 尺寸变化后重新判断是否超出，在随后的onLayout中执行
+         */
+        requestReset();
+    }
+
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
+        if (isResetPending) {
+            reset();
+        }
     }
 
     @Override
@@ -153,31 +712,191 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
             params.height = mMaxHeight;
         }
         super.setLayoutParams(params);
-        post(this::reset);
+        requestReset();
     }
 
-    private synchronized void resetStatus() {
+    private void resetStatus() {
+        if (!isStreaming && applyFitTextSize()) {
+            /**
+             * 字号变化后等待重新布局，再按新的行数判断是否滚动
+             */
+            requestReset();
+            return;
+        }
         if (!isScrollEnabled) {
             stopMarquee();
-            postInvalidate();
+            invalidate();
             return;
         }
-        resetTextParams();
+        if (isStreaming) {
+            resetStreamParams();
+        } else {
+            resetTextParams();
+        }
         resetThread();
-        postInvalidate();
+        invalidate();
+    }
+
+    /**
+     * 先缩小后滚动：查找放得下的最大字号，不低于{@link #mFitMinTextSize}
+     *
+     * @return 字号是否变化
+     */
+    private boolean applyFitTextSize() {
+        if (mFitMinTextSize <= 0) {
+            return false;
+        }
+        int width = getWidth() - getCompoundPaddingLeft() - getCompoundPaddingRight();
+        int maxHeight = mMaxHeight > 0 ? mMaxHeight : getHeight();
+        int availableHeight = maxHeight - getCompoundPaddingTop() - getCompoundPaddingBottom();
+        if (width <= 0 || availableHeight <= 0) {
+            return false;
+        }
+        if (mFitPaint == null) {
+            mFitPaint = new TextPaint();
+        }
+        mFitPaint.set(getPaint());
+        mFitPaint.setTextSize(mFitMaxTextSize);
+        CharSequence text = getText();
+        float textSize;
+        if (text instanceof String) {
+            FitKey key = new FitKey();
+            key.layoutKey.set(text, width, mFitPaint, getLineSpacingMultiplier(), getLineSpacingExtra());
+            key.availableHeight = availableHeight;
+            key.minTextSize = mFitMinTextSize;
+            Float cachedTextSize = FIT_TEXT_SIZE_CACHE.get(key);
+            if (cachedTextSize == null) {
+                cachedTextSize = searchFitTextSize(text, width, availableHeight);
+                FIT_TEXT_SIZE_CACHE.put(key, cachedTextSize);
+            }
+            textSize = cachedTextSize;
+        } else {
+            textSize = searchFitTextSize(text, width, availableHeight);
+        }
+        if (textSize == getTextSize()) {
+            return false;
+        }
+        setFitTextSize(textSize);
+        return true;
+    }
+
+    /**
+     * 按整像素二分查找放得下的最大字号，最小字号仍放不下时返回最小字号，随后滚动
+     */
+    private float searchFitTextSize(CharSequence text, int width, int availableHeight) {
+        float min = Math.min(mFitMinTextSize, mFitMaxTextSize);
+        float max = mFitMaxTextSize;
+        if (isTextFit(text, max, width, availableHeight)) {
+            return max;
+        }
+        if (!isTextFit(text, min, width, availableHeight)) {
+            return min;
+        }
+        while (max - min > 1) {
+            float mid = (float) Math.floor((min + max) / 2);
+            if (mid <= min) {
+                break;
+            }
+            if (isTextFit(text, mid, width, availableHeight)) {
+                min = mid;
+            } else {
+                max = mid;
+            }
+        }
+        return min;
     }
 
-    private synchronized void resetTextParams() {
+    private boolean isTextFit(CharSequence text, float textSize, int width, int availableHeight) {
+        mFitPaint.setTextSize(textSize);
+        StaticLayout layout = new StaticLayout(text, mFitPaint, width, Layout.Alignment.ALIGN_NORMAL,
+                getLineSpacingMultiplier(), getLineSpacingExtra(), getIncludeFontPadding());
+        return layout.getHeight() <= availableHeight;
+    }
+
+    private void setFitTextSize(float textSize) {
+        isFittingTextSize = true;
+        try {
+            super.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+        } finally {
+            isFittingTextSize = false;
+        }
+    }
+
+    private void resetTextParams() {
         int currentTextColor = getCurrentTextColor();
         TextPaint textPaint = getPaint();
         textPaint.setColor(currentTextColor);
-        mTextLayout = new StaticLayout(getText(), getPaint(),
-                getWidth(), Layout.Alignment.ALIGN_NORMAL,
-                getLineSpacingMultiplier(), getLineSpacingExtra(), false);
+        CharSequence text = getText();
+        int width = getWidth();
+        float spacingMult = getLineSpacingMultiplier();
+        float spacingAdd = getLineSpacingExtra();
+        if (mAsyncLayout != null) {
+            /**
+             * 异步排好的文本已设置，宽度、画笔未变化时直接使用
+             */
+            StaticLayout asyncLayout = mAsyncLayout;
+            mAsyncLayout = null;
+            mAsyncLayoutKey.text = text;
+            if (mAsyncLayoutKey.matches(text, width, textPaint, spacingMult, spacingAdd)) {
+                asyncLayout.getPaint().setColor(currentTextColor);
+                mTextLayout = asyncLayout;
+                mTextLayoutKey.set(text, width, textPaint, spacingMult, spacingAdd);
+                return;
+            }
+        }
+        if (mTextLayout != null && mTextLayoutKey.matches(text, width, textPaint, spacingMult, spacingAdd)) {
+            /**
+             * 后台排版的StaticLayout使用的是画笔副本
+             */
+            mTextLayout.getPaint().setColor(currentTextColor);
+            mLayoutReuseCount++;
+            return;
+        }
+        mTextLayoutKey.set(text, width, textPaint, spacingMult, spacingAdd);
+        /**
+         * 纯文本在列表中反复绑定，查找共享的排版缓存；带样式的文本按对象判断，缓存没有意义
+         */
+        boolean isCacheable = text instanceof String;
+        TextLayoutCache cache = isCacheable ? TextLayoutCache.getInstance(getContext()) : null;
+        StaticLayout layout = isCacheable ? cache.get(mTextLayoutKey) : null;
+        if (layout != null) {
+            mTextLayout = layout;
+            mTextLayout.getPaint().setColor(currentTextColor);
+            mLayoutReuseCount++;
+            return;
+        }
+        /**
+         * 使用画笔副本，视图画笔之后的变化不影响已缓存的排版
+         */
+        mTextLayout = new StaticLayout(text, new TextPaint(textPaint),
+                width, Layout.Alignment.ALIGN_NORMAL,
+                spacingMult, spacingAdd, false);
+        mLayoutBuildCount++;
+        if (isCacheable) {
+            TextLayoutKey key = new TextLayoutKey();
+            key.set(mTextLayoutKey);
+            cache.put(key, mTextLayout);
+        }
+    }
+
+    /**
+     * 排版次数，用于检查缓存是否生效
+     *
+     * @return 创建StaticLayout的次数，命中{@link TextLayoutCache}的不计入
+     */
+    public int getLayoutBuildCount() {
+        return mLayoutBuildCount;
+    }
+
+    /**
+     * @return 参数未变化或命中{@link TextLayoutCache}、直接复用StaticLayout的次数
+     */
+    public int getLayoutReuseCount() {
+        return mLayoutReuseCount;
     }
 
-    protected final synchronized void resetThread() {
-        mMyHeight = getLineHeight() * getLineCount();
+    protected final void resetThread() {
+        mMyHeight = isStreaming ? mStreamHeight : getLineHeight() * getLineCount();
         /**
          * 判断是否超出范围 -> 滚动
          * 相等时，有可能是wrap_content，则不能滚动
@@ -185,81 +904,651 @@ public class AutoVerticalScrollTextView extends AppCompatTextView {
         int measureHeight = getMeasuredHeight();
 //        Log.i(TAG, "Text can scroll: " + mMyHeight + " - " + measureHeight);
         isScrolled = mMyHeight > measureHeight;
+        if (isMarqueeOnSelected) {
+            isSelectedItem = checkSelectedItem();
+        }
         /**
          * 当从不可见变成可见的时候，没有完成绘制时measureHeight为0 ,mMyHeight > 0
          * 从而导致不管是否超出实际maxHeight 都会滚动一次
          * 所以如果measureHeight为0的时候不滚动
          */
-        if (isScrolled && measureHeight > 0) {
+        if (isScrolled && measureHeight > 0 && isShownInWindow() && (!isMarqueeOnSelected || isSelectedItem)) {
             startMarquee();
+        } else {
+            stopMarquee();
         }
     }
 
     public void stopMarquee() {
-        if (mMarquee != null) {
-            mMarquee.removeCallbacksAndMessages(null);
+        /**
+         * 父类构造时setText会回调到这里，此时还未初始化
+         */
+        if (mMarqueeStartRunnable == null) {
+            return;
+        }
+        removeCallbacks(mMarqueeStartRunnable);
+        if (isMarqueeRunning) {
+            isMarqueeRunning = false;
+            MarqueeDriver.getInstance().unregister(mMarqueeFrameListener);
         }
     }
 
     private void startMarquee() {
-        if (mMarquee == null) {
-            mMarquee = new Handler();
-        }
         stopMarquee();
 
-        mMarquee.postDelayed(mMarqueeRunnable, mDelayStart);
+        /**
+         * 等待期间只有一个延时消息，不请求任何帧
+         */
+        postDelayed(mMarqueeStartRunnable, mDelayStart);
+    }
+
+    /**
+     * 帧驱动模式按最大帧率限制，定时滚动模式按{@link #mSpeed}的间隔移动
+     *
+     * @return 订阅{@link MarqueeDriver}的帧间隔，单位ms
+     */
+    private long getFrameIntervalMillis() {
+        if (isPageMode()) {
+            return 0;
+        }
+        if (mVelocity > 0) {
+            return mMaxFps > 0 ? 1000 / mMaxFps : 0;
+        }
+        return SPEED_SCALE * mSpeed;
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        /**
+         * 自身或父布局隐藏时停止滚动，重新显示时重置
+         */
+        if (isShown()) {
+            requestReset();
+        } else {
+            stopMarquee();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == View.VISIBLE) {
+            requestReset();
+        } else {
+            stopMarquee();
+        }
     }
 
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        reset();
+        registerSelectedListener();
+        requestReset();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        unregisterSelectedListener();
+        cancelPendingReset();
         stopMarquee();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mTextNode != null) {
+            mTextNode.discardDisplayList();
+            mRecordedLayout = null;
+        }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        if (mScrollType == TYPE_TRANSLATE) {
+        if (mTextLayout != null) {
+            /**
+             * 缓存的排版可能被多个实例共用，绘制前设置当前颜色
+             */
+            mTextLayout.getPaint().setColor(getCurrentTextColor());
+        }
+        boolean isFadeEdge = isFadeEdgeEnabled();
+        if (isStreaming) {
+            drawStreamLines(canvas, isFadeEdge);
+            return;
+        }
+        if (mScrollType == TYPE_RENDER_NODE && isScrollEnabled && isScrolled && !isFadeEdge) {
+            /**
+             * 渐变随滚动位置变化，无法录制一次后复用，渐隐时退回平移绘制
+             */
+            if (drawTextNode(canvas)) {
+                return;
+            }
+        }
+        if (mScrollType != TYPE_SCROLL_TO) {
             if (isScrollEnabled && isScrolled) {
                 canvas.save();
                 float textX = 0;
                 float textY = mNowPoint;
                 canvas.translate(textX, textY);
                 if (mTextLayout != null) {
-                    mTextLayout.draw(canvas);
+                    TextPaint paint = mTextLayout.getPaint();
+                    if (isFadeEdge) {
+                        paint.setShader(obtainFadeShader(-textY));
+                    }
+                    drawVisibleLines(canvas, mTextLayout, -textY);
+                    if (isContinuousLoop) {
+                        int period = getLoopPeriod();
+                        canvas.translate(0, period);
+                        if (isFadeEdge) {
+                            paint.setShader(obtainFadeShader(-textY - period));
+                        }
+                        drawVisibleLines(canvas, mTextLayout, -textY - period);
+                    }
+                    paint.setShader(null);
                 }
                 canvas.restore();
                 return;
             }
         }
+        /**
+         * TextView按compoundPaddingLeft、extendedPaddingTop平移后绘制文本，超出时垂直偏移为0
+         */
+        float fadeOffset = getScrollY() - getExtendedPaddingTop();
+        if (isFadeEdge) {
+            getPaint().setShader(obtainFadeShader(fadeOffset));
+        }
         super.onDraw(canvas);
+        if (mScrollType == TYPE_SCROLL_TO && isContinuousLoop && isScrollEnabled && isScrolled && mTextLayout != null) {
+            /**
+             * 画布已按scrollY平移，在文本后面接着绘制一份
+             */
+            canvas.save();
+            canvas.clipRect(getScrollX() + getCompoundPaddingLeft(), getScrollY() + getExtendedPaddingTop(),
+                    getScrollX() + getWidth() - getCompoundPaddingRight(),
+                    getScrollY() + getHeight() - getExtendedPaddingBottom());
+            canvas.translate(getCompoundPaddingLeft(), getExtendedPaddingTop() + getLoopPeriod());
+            if (isFadeEdge) {
+                mTextLayout.getPaint().setShader(obtainFadeShader(fadeOffset - getLoopPeriod()));
+            }
+            mTextLayout.draw(canvas);
+            mTextLayout.getPaint().setShader(null);
+            canvas.restore();
+        }
+        getPaint().setShader(null);
     }
 
-    private Runnable mMarqueeRunnable = new Runnable() {
+    private void registerSelectedListener() {
+        if (!isMarqueeOnSelected) {
+            return;
+        }
+        mGridView = findGridView();
+        if (mGridView != null) {
+            mGridView.addOnChildViewHolderSelectedListener(mChildSelectedListener);
+        }
+        getViewTreeObserver().addOnGlobalFocusChangeListener(mFocusChangeListener);
+        isSelectedItem = checkSelectedItem();
+    }
+
+    private void unregisterSelectedListener() {
+        if (mGridView != null) {
+            mGridView.removeOnChildViewHolderSelectedListener(mChildSelectedListener);
+            mGridView = null;
+        }
+        if (isMarqueeOnSelected) {
+            getViewTreeObserver().removeOnGlobalFocusChangeListener(mFocusChangeListener);
+        }
+        isSelectedItem = false;
+    }
+
+    private BaseGridView findGridView() {
+        ViewParent parent = getParent();
+        while (parent instanceof View) {
+            if (parent instanceof BaseGridView) {
+                return (BaseGridView) parent;
+            }
+            parent = parent.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * 所在item是否为列表的选中项，或包含焦点；不在列表中时自身或父布局获得焦点、被选中即可
+     */
+    private boolean checkSelectedItem() {
+        if (mGridView != null) {
+            View itemView = mGridView.findContainingItemView(this);
+            if (itemView == null) {
+                return false;
+            }
+            int position = mGridView.getChildAdapterPosition(itemView);
+            return itemView.hasFocus()
+                    || (position != RecyclerView.NO_POSITION && position == mGridView.getSelectedPosition());
+        }
+        View view = this;
+        while (view != null) {
+            if (view.isFocused() || view.isSelected()) {
+                return true;
+            }
+            view = view.getParent() instanceof View ? (View) view.getParent() : null;
+        }
+        return false;
+    }
+
+    /**
+     * 选中项变化时，只有进入、离开选中状态的实例重置：进入时等待delayStart后滚动，离开时回到开头并停止
+     */
+    private void updateSelectedItem() {
+        boolean selectedItem = checkSelectedItem();
+        if (selectedItem != isSelectedItem) {
+            isSelectedItem = selectedItem;
+            requestReset();
+        }
+    }
+
+    private final OnChildViewHolderSelectedListener mChildSelectedListener = new OnChildViewHolderSelectedListener() {
+
+        @Override
+        public void onChildViewHolderSelected(RecyclerView parent, RecyclerView.ViewHolder child, int position, int subposition) {
+            updateSelectedItem();
+        }
+    };
+
+    private final ViewTreeObserver.OnGlobalFocusChangeListener mFocusChangeListener = (oldFocus, newFocus) -> updateSelectedItem();
+
+    private boolean isFadeEdgeEnabled() {
+        if (mFadeEdgeLength <= 0 || !isScrollEnabled || !isScrolled || getHeight() <= 0) {
+            return false;
+        }
+        if (isStreaming) {
+            /**
+             * 流式追加按段落判断
+             */
+            return true;
+        }
+        CharSequence text = getText();
+        if (text != mColorSpanCheckedText) {
+            mColorSpanCheckedText = text;
+            hasColorSpans = hasColorSpans(text);
+        }
+        return !hasColorSpans;
+    }
+
+    /**
+     * 是否有样式会修改绘制颜色：把每个{@link CharacterStyle}应用到标记了颜色的画笔上，颜色或着色器变化即是，
+     * 覆盖{@link ForegroundColorSpan}、{@link ClickableSpan}的链接色、{@link TextAppearanceSpan}等；必须在主线程调用
+     */
+    private static boolean hasColorSpans(CharSequence text) {
+        if (!(text instanceof Spanned)) {
+            return false;
+        }
+        CharacterStyle[] styles = ((Spanned) text).getSpans(0, text.length(), CharacterStyle.class);
+        for (CharacterStyle style : styles) {
+            COLOR_PROBE_PAINT.set(EMPTY_PAINT);
+            COLOR_PROBE_PAINT.setColor(COLOR_PROBE);
+            COLOR_PROBE_PAINT.linkColor = ~COLOR_PROBE;
+            style.getUnderlying().updateDrawState(COLOR_PROBE_PAINT);
+            if (COLOR_PROBE_PAINT.getColor() != COLOR_PROBE || COLOR_PROBE_PAINT.getShader() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 上下渐隐的遮罩：文字颜色的渐变直接作为画笔的着色器，一次绘制完成，不使用saveLayer离屏缓冲；
+     * 渐变按视图坐标创建，只在高度、颜色、渐隐长度变化时重建，滚动时只修改局部矩阵抵消画布的平移
+     *
+     * @param offset 当前画布原点在可见区域中的位置的相反数
+     * @return
+     */
+    private Shader obtainFadeShader(float offset) {
+        int height = getHeight();
+        int color = getCurrentTextColor();
+        int length = Math.min(mFadeEdgeLength, height / 2);
+        if (mFadeShader == null || mFadeShaderHeight != height || mFadeShaderColor != color || mFadeShaderLength != length) {
+            /**
+             * 着色器替代画笔颜色，画笔的透明度仍然生效，渐变只需要控制透明度
+             */
+            int opaque = color | 0xFF000000;
+            int transparent = color & 0x00FFFFFF;
+            float edge = (float) length / height;
+            mFadeShader = new LinearGradient(0, 0, 0, height,
+                    new int[]{transparent, opaque, opaque, transparent},
+                    new float[]{0, edge, 1 - edge, 1}, Shader.TileMode.CLAMP);
+            mFadeShaderHeight = height;
+            mFadeShaderColor = color;
+            mFadeShaderLength = length;
+        }
+        mFadeMatrix.setTranslate(0, offset);
+        mFadeShader.setLocalMatrix(mFadeMatrix);
+        return mFadeShader;
+    }
+
+    /**
+     * 只绘制与可见区域相交的段落
+     */
+    private void drawStreamLines(Canvas canvas, boolean isFadeEdge) {
+        int color = getCurrentTextColor();
+        int top = -mNowPoint;
+        int bottom = top + getHeight();
+        int lineTop = 0;
+        canvas.save();
+        canvas.translate(0, mNowPoint);
+        for (StreamLine streamLine : mStreamLines) {
+            if (lineTop >= bottom) {
+                break;
+            }
+            int height = streamLine.getHeight();
+            if (height > 0 && lineTop + height > top) {
+                TextPaint paint = streamLine.layout.getPaint();
+                paint.setColor(color);
+                if (isFadeEdge && !streamLine.hasColorSpans) {
+                    paint.setShader(obtainFadeShader(top - lineTop));
+                }
+                canvas.save();
+                canvas.translate(0, lineTop);
+                drawVisibleLines(canvas, streamLine.layout, top - lineTop);
+                canvas.restore();
+                paint.setShader(null);
+            }
+            lineTop += height;
+        }
+        canvas.restore();
+    }
+
+    private int getLoopPeriod() {
+        return mMyHeight + mLoopGap;
+    }
+
+    /**
+     * 排版与可见区域不相交时跳过；相交时直接绘制，{@link Layout#draw(Canvas)}按画布当前的裁剪区域
+     * （即控件自身的可见范围）只遍历可见的行，每帧的绘制开销与文本总长度无关
+     *
+     * @param canvas 已平移到文本坐标系
+     * @param layout 排版
+     * @param top 可见区域在文本中的顶部位置
+     */
+    private void drawVisibleLines(Canvas canvas, Layout layout, float top) {
+        if (layout.getLineCount() == 0) {
+            return;
+        }
+        float bottom = top + getHeight();
+        if (bottom <= 0 || top >= layout.getHeight()) {
+            return;
+        }
+        layout.draw(canvas);
+    }
+
+    /**
+     * 绘制录制好的文本，只有排版或颜色变化时才重新录制，滚动时只修改平移
+     *
+     * @param canvas
+     * @return 不支持RenderNode时返回false
+     */
+    private boolean drawTextNode(Canvas canvas) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || !canvas.isHardwareAccelerated() || mTextLayout == null) {
+            return false;
+        }
+        if (mTextNode == null) {
+            mTextNode = new RenderNode(TAG);
+        }
+        int color = getCurrentTextColor();
+        if (mRecordedLayout != mTextLayout || mRecordedColor != color || !mTextNode.hasDisplayList()) {
+            mTextNode.setPosition(0, 0, mTextLayout.getWidth(), mTextLayout.getHeight());
+            RecordingCanvas recordingCanvas = mTextNode.beginRecording();
+            try {
+                mTextLayout.draw(recordingCanvas);
+            } finally {
+                mTextNode.endRecording();
+            }
+            mRecordedLayout = mTextLayout;
+            mRecordedColor = color;
+        }
+        mTextNode.setTranslationY(mNowPoint);
+        canvas.drawRenderNode(mTextNode);
+        if (isContinuousLoop) {
+            int period = getLoopPeriod();
+            if (mNowPoint + period < getHeight()) {
+                canvas.save();
+                canvas.translate(0, period);
+                canvas.drawRenderNode(mTextNode);
+                canvas.restore();
+            }
+        }
+        return true;
+    }
+
+    private final Runnable mMarqueeStartRunnable = new Runnable() {
 
         @Override
         public void run() {
-            if (mStep <= 0) {
-                stopMarquee();
+            if (!isShownInWindow()) {
+                /**
+                 * 等待期间被隐藏：不订阅帧驱动，重新显示时会重置再等待
+                 */
+                return;
+            }
+            if (isPageMode()) {
+                startPageFlip();
+                return;
+            }
+            if (mVelocity <= 0 && mStep <= 0) {
+                return;
+            }
+            mLastFrameTimeNanos = 0;
+            mStepElapsedNanos = 0;
+            isMarqueeRunning = true;
+            MarqueeDriver.getInstance().register(mMarqueeFrameListener, getFrameIntervalMillis());
+        }
+    };
+
+    /**
+     * 所有滚动中的实例在{@link MarqueeDriver}的同一个帧回调中移动，按帧时间戳计算位移，速度与looper负载无关
+     */
+    private final MarqueeDriver.OnFrameListener mMarqueeFrameListener = new MarqueeDriver.OnFrameListener() {
+
+        @Override
+        public void onMarqueeFrame(long frameTimeNanos) {
+            if (isPageMode()) {
+                onPageFrame(frameTimeNanos);
+                return;
+            }
+            if (mLastFrameTimeNanos == 0) {
+                mLastFrameTimeNanos = frameTimeNanos;
                 return;
+            }
+            long elapsedNanos = Math.max(0, frameTimeNanos - mLastFrameTimeNanos);
+            mLastFrameTimeNanos = frameTimeNanos;
+            if (mVelocity > 0) {
+                mScrollPoint -= (float) mVelocity * elapsedNanos / NANOS_PER_SECOND;
             } else {
-                mNowPoint -= mStep;
-                if (mMyHeight != 0 && mNowPoint < -mMyHeight) {
-                    reset();
-                    return;
-                }
-                if (mScrollType == TYPE_TRANSLATE) {
-                    postInvalidate();
-                } else {
-                    scrollTo(0, -mNowPoint);
-                }
+                /**
+                 * 定时滚动：每经过一个间隔移动mStep，帧落后时一次补齐
+                 */
+                long stepNanos = Math.max(1, SPEED_SCALE * mSpeed) * NANOS_PER_MILLI;
+                mStepElapsedNanos += elapsedNanos;
+                mScrollPoint -= mStep * (mStepElapsedNanos / stepNanos);
+                mStepElapsedNanos %= stepNanos;
             }
-            mMarquee.postDelayed(mMarqueeRunnable, SPEED_SCALE * mSpeed);
+            if (isStreaming) {
+                onStreamFrame();
+                return;
+            }
+            if (isContinuousLoop && mMyHeight != 0 && mScrollPoint <= -getLoopPeriod()) {
+                /**
+                 * 连续循环：按周期回绕，第二份文本刚好接替第一份，没有跳变
+                 */
+                mScrollPoint += getLoopPeriod();
+            }
+            if (!isContinuousLoop && mMyHeight != 0 && Math.round(mScrollPoint) < -mMyHeight) {
+                reset();
+                return;
+            }
+            applyScrollPoint();
         }
     };
+
+    /**
+     * 流式追加：滚动到末尾时停止，不再请求帧；滚出顶部的段落丢弃，滚动位置同步调整
+     */
+    private void onStreamFrame() {
+        int maxOffset = Math.max(0, mStreamHeight - getMeasuredHeight());
+        if (-mScrollPoint >= maxOffset) {
+            mScrollPoint = -maxOffset;
+            isMarqueeRunning = false;
+            MarqueeDriver.getInstance().unregister(mMarqueeFrameListener);
+        }
+        StreamLine head;
+        while ((head = mStreamLines.peekFirst()) != null && head.layout != null && head.getHeight() <= -mScrollPoint) {
+            mStreamLines.pollFirst();
+            mStreamHeight -= head.getHeight();
+            mScrollPoint += head.getHeight();
+            mNowPoint += head.getHeight();
+        }
+        mMyHeight = mStreamHeight;
+        applyScrollPoint();
+    }
+
+    private void applyScrollPoint() {
+        int nowPoint = Math.round(mScrollPoint);
+        if (nowPoint != mNowPoint) {
+            mNowPoint = nowPoint;
+            if (mScrollType != TYPE_SCROLL_TO || isStreaming) {
+                invalidate();
+            } else {
+                scrollTo(0, -mNowPoint);
+            }
+        }
+    }
+
+    /**
+     * 翻页：计算下一页的位置，订阅帧驱动播放翻页动画；已是最后一页时回到开头重新等待
+     */
+    private void startPageFlip() {
+        if (mTextLayout == null) {
+            return;
+        }
+        int from = -mNowPoint;
+        int to = getNextPageTop(mTextLayout, from);
+        if (to < 0) {
+            if (!isContinuousLoop) {
+                reset();
+                return;
+            }
+            /**
+             * 连续循环：翻到第二份文本的开头，结束时回绕到0
+             */
+            to = getLoopPeriod();
+        }
+        mPageFrom = from;
+        mPageTo = to;
+        mLastFrameTimeNanos = 0;
+        isMarqueeRunning = true;
+        MarqueeDriver.getInstance().register(mMarqueeFrameListener, getFrameIntervalMillis());
+    }
+
+    private void onPageFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos == 0) {
+            mLastFrameTimeNanos = frameTimeNanos;
+        }
+        float fraction = 1;
+        if (mPageDuration > 0) {
+            fraction = Math.min(1f, (float) (frameTimeNanos - mLastFrameTimeNanos) / (mPageDuration * NANOS_PER_MILLI));
+        }
+        mScrollPoint = -(mPageFrom + (mPageTo - mPageFrom) * PAGE_INTERPOLATOR.getInterpolation(fraction));
+        if (fraction >= 1) {
+            if (isContinuousLoop && mPageTo >= getLoopPeriod()) {
+                mScrollPoint = 0;
+            }
+            /**
+             * 停留期间取消订阅，只保留一个延时消息
+             */
+            isMarqueeRunning = false;
+            MarqueeDriver.getInstance().unregister(mMarqueeFrameListener);
+            postDelayed(mMarqueeStartRunnable, mPageDwell);
+        }
+        applyScrollPoint();
+    }
+
+    /**
+     * 下一页的顶部，对齐到行的顶部：整页时从当前页第一行没有完整显示的行开始，否则向后滚动{@link #mPageLines}行
+     *
+     * @param layout 排版
+     * @param top 当前页的顶部
+     * @return 已显示到最后一行时返回-1
+     */
+    private int getNextPageTop(Layout layout, int top) {
+        int pageHeight = getHeight();
+        int lineCount = layout.getLineCount();
+        if (lineCount == 0 || pageHeight <= 0 || top + pageHeight >= layout.getHeight()) {
+            return -1;
+        }
+        int firstLine = layout.getLineForVertical(top);
+        int nextLine;
+        if (mPageLines > 0) {
+            nextLine = firstLine + mPageLines;
+        } else {
+            int lastLine = layout.getLineForVertical(top + pageHeight);
+            nextLine = layout.getLineBottom(lastLine) > top + pageHeight ? lastLine : lastLine + 1;
+        }
+        /**
+         * 单行高度超过一页时至少前进一行
+         */
+        nextLine = Math.max(nextLine, firstLine + 1);
+        if (nextLine >= lineCount) {
+            return -1;
+        }
+        return layout.getLineTop(nextLine);
+    }
+
+    /**
+     * 流式追加的段落，宽度变化时重新排版
+     */
+    private static final class StreamLine {
+
+        final CharSequence text;
+        /**
+         * 带颜色样式的段落不渐隐，见{@link AutoVerticalScrollTextView#setFadeEdgeLength(int)}
+         */
+        final boolean hasColorSpans;
+        StaticLayout layout;
+        int width;
+
+        StreamLine(CharSequence text) {
+            this.text = text;
+            this.hasColorSpans = hasColorSpans(text);
+        }
+
+        int getHeight() {
+            return layout == null ? 0 : layout.getHeight();
+        }
+    }
+
+    /**
+     * 缩小字号的缓存键：文本、宽度、样式（按设置的字号），及可用高度、最小字号
+     */
+    private static final class FitKey {
+
+        final TextLayoutKey layoutKey = new TextLayoutKey();
+        int availableHeight;
+        float minTextSize;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FitKey)) {
+                return false;
+            }
+            FitKey key = (FitKey) o;
+            return availableHeight == key.availableHeight
+                    && minTextSize == key.minTextSize
+                    && layoutKey.equals(key.layoutKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = layoutKey.hashCode();
+            result = 31 * result + availableHeight;
+            result = 31 * result + Float.floatToIntBits(minTextSize);
+            return result;
+        }
+    }
 }
@@ -0,0 +1,170 @@
+package com.excellence.widget.text;
+
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 进程内共享的滚动帧驱动
+ *              所有正在滚动的文本共用一个帧回调，同一帧内依次移动、一起失效重绘，不再各自定时、错开刷新；
+ *              订阅者可设置帧间隔，只在到期的帧回调；没有订阅者时不请求任何帧
+ * </pre>
+ */
+public final class MarqueeDriver {
+
+    private static final long NANOS_PER_MILLI = 1000_000L;
+    private static final long NO_FRAME = Long.MAX_VALUE;
+    /**
+     * 提前请求帧的余量，避免刚好错过vsync导致帧间隔翻倍
+     */
+    private static final long FRAME_SLOP_MILLIS = 8;
+
+    private static MarqueeDriver sInstance = null;
+
+    private final Choreographer.FrameCallback mFrameCallback = this::doFrame;
+    private final List<Subscriber> mSubscribers = new ArrayList<>();
+    /**
+     * 分发过程中订阅者可能增删，复用该列表做快照，避免每帧分配
+     */
+    private final List<Subscriber> mDispatching = new ArrayList<>();
+    /**
+     * 已请求的帧对应的时间，{@link #NO_FRAME}表示没有请求
+     */
+    private long mScheduledTimeNanos = NO_FRAME;
+
+    public static MarqueeDriver getInstance() {
+        if (sInstance == null) {
+            sInstance = new MarqueeDriver();
+        }
+        return sInstance;
+    }
+
+    private MarqueeDriver() {
+    }
+
+    /**
+     * 订阅，必须在主线程调用；订阅后的下一帧开始回调
+     *
+     * @param listener 订阅者
+     * @param intervalMillis 帧间隔，单位ms，0表示每帧回调
+     */
+    public void register(OnFrameListener listener, long intervalMillis) {
+        if (listener == null) {
+            return;
+        }
+        int index = indexOf(listener);
+        if (index >= 0) {
+            mSubscribers.get(index).intervalNanos = Math.max(0, intervalMillis) * NANOS_PER_MILLI;
+            return;
+        }
+        Subscriber subscriber = new Subscriber(listener, Math.max(0, intervalMillis) * NANOS_PER_MILLI);
+        subscriber.nextFrameTimeNanos = System.nanoTime();
+        mSubscribers.add(subscriber);
+        schedule();
+    }
+
+    /**
+     * 取消订阅，必须在主线程调用；没有订阅者时不再请求帧
+     *
+     * @param listener 订阅者
+     */
+    public void unregister(OnFrameListener listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        mSubscribers.remove(index).isRemoved = true;
+        if (mSubscribers.isEmpty()) {
+            cancel();
+        }
+    }
+
+    /**
+     * 当前订阅数量
+     *
+     * @return
+     */
+    public int getListenerCount() {
+        return mSubscribers.size();
+    }
+
+    private int indexOf(OnFrameListener listener) {
+        for (int i = 0; i < mSubscribers.size(); i++) {
+            if (mSubscribers.get(i).listener == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mScheduledTimeNanos = NO_FRAME;
+        long slopNanos = FRAME_SLOP_MILLIS * NANOS_PER_MILLI;
+        mDispatching.addAll(mSubscribers);
+        for (Subscriber subscriber : mDispatching) {
+            /**
+             * 分发过程中已被取消订阅的不再回调，未到间隔的跳过本帧
+             */
+            if (!subscriber.isRemoved && subscriber.nextFrameTimeNanos - slopNanos <= frameTimeNanos) {
+                subscriber.nextFrameTimeNanos = frameTimeNanos + subscriber.intervalNanos;
+                subscriber.listener.onMarqueeFrame(frameTimeNanos);
+            }
+        }
+        mDispatching.clear();
+        schedule();
+    }
+
+    private void schedule() {
+        long nextFrameTimeNanos = NO_FRAME;
+        for (Subscriber subscriber : mSubscribers) {
+            nextFrameTimeNanos = Math.min(nextFrameTimeNanos, subscriber.nextFrameTimeNanos);
+        }
+        if (nextFrameTimeNanos >= mScheduledTimeNanos) {
+            /**
+             * 已请求的帧更早或相同，无需重新请求
+             */
+            return;
+        }
+        cancel();
+        mScheduledTimeNanos = nextFrameTimeNanos;
+        long delayMillis = (nextFrameTimeNanos - System.nanoTime()) / NANOS_PER_MILLI - FRAME_SLOP_MILLIS;
+        if (delayMillis > 0) {
+            Choreographer.getInstance().postFrameCallbackDelayed(mFrameCallback, delayMillis);
+        } else {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void cancel() {
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        mScheduledTimeNanos = NO_FRAME;
+    }
+
+    private static class Subscriber {
+
+        private final OnFrameListener listener;
+        private long intervalNanos;
+        private long nextFrameTimeNanos = NO_FRAME;
+        private boolean isRemoved = false;
+
+        private Subscriber(OnFrameListener listener, long intervalNanos) {
+            this.listener = listener;
+            this.intervalNanos = intervalNanos;
+        }
+    }
+
+    public interface OnFrameListener {
+
+        /**
+         * 帧回调，同一帧到期的订阅者依次回调
+         *
+         * @param frameTimeNanos 本帧的vsync时间，{@link System#nanoTime()}时基
+         */
+        void onMarqueeFrame(long frameTimeNanos);
+    }
+}
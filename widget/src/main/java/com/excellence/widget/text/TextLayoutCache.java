@@ -0,0 +1,133 @@
+package com.excellence.widget.text;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.text.StaticLayout;
+import android.util.LruCache;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 进程内共享的文本排版缓存
+ *              列表复用时相同的文本（如"直播"、类型简介、剧集简介）反复绑定，按排版参数缓存StaticLayout，
+ *              再次绑定不再断行；按估算的内存大小淘汰，内存紧张时按等级裁剪
+ *              缓存的排版使用独立的画笔副本，颜色不参与排版，由使用方绘制前设置
+ * </pre>
+ */
+public final class TextLayoutCache {
+
+    /**
+     * 每行的估算字节数：行起点、顶部、下沉、方向等
+     */
+    private static final int BYTES_PER_LINE = 32;
+    /**
+     * 每个排版对象本身的估算字节数
+     */
+    private static final int BYTES_PER_LAYOUT = 128;
+
+    private static TextLayoutCache sInstance = null;
+
+    private final LruCache<TextLayoutKey, StaticLayout> mCache;
+
+    public static TextLayoutCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new TextLayoutCache((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 256));
+            context.getApplicationContext().registerComponentCallbacks(sInstance.mComponentCallbacks);
+        }
+        return sInstance;
+    }
+
+    private TextLayoutCache(int maxBytes) {
+        mCache = new LruCache<TextLayoutKey, StaticLayout>(maxBytes) {
+            @Override
+            protected int sizeOf(TextLayoutKey key, StaticLayout value) {
+                return estimateSize(key, value);
+            }
+        };
+    }
+
+    /**
+     * @param key 排版参数
+     * @return 未缓存时返回null
+     */
+    StaticLayout get(TextLayoutKey key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * @param key 排版参数，缓存会持有该对象，之后不能再修改
+     * @param layout 排版
+     */
+    void put(TextLayoutKey key, StaticLayout layout) {
+        mCache.put(key, layout);
+    }
+
+    /**
+     * 根据内存紧张程度裁剪：界面隐藏或内存较低时减半，进入后台或内存严重不足时清空
+     *
+     * @param level {@link ComponentCallbacks2}的等级
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    public int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return mCache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * @return 当前缓存的估算字节数
+     */
+    public int getSize() {
+        return mCache.size();
+    }
+
+    public int getMaxSize() {
+        return mCache.maxSize();
+    }
+
+    private static int estimateSize(TextLayoutKey key, StaticLayout layout) {
+        int textLength = key.text == null ? 0 : key.text.length();
+        return BYTES_PER_LAYOUT + textLength * 2 + layout.getLineCount() * BYTES_PER_LINE;
+    }
+
+    private final ComponentCallbacks2 mComponentCallbacks = new ComponentCallbacks2() {
+
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            /**
+             * 字体缩放、语言变化会改变字号或文本，键不同，旧的排版自然淘汰
+             */
+        }
+
+        @Override
+        public void onLowMemory() {
+            mCache.evictAll();
+        }
+    };
+}
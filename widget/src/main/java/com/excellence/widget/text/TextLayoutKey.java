@@ -0,0 +1,173 @@
+package com.excellence.widget.text;
+
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import androidx.core.util.ObjectsCompat;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 文本排版的参数：文本、宽度、影响排版的画笔状态（含字体特性、语言区域、标志位）、行距
+ *              参数不变时排版结果不变，可直接复用，不再重新断行
+ * </pre>
+ */
+final class TextLayoutKey {
+
+    CharSequence text;
+    int width;
+    float textSize;
+    Typeface typeface;
+    float textScaleX;
+    float textSkewX;
+    float letterSpacing;
+    boolean isFakeBold;
+    String fontFeatureSettings;
+    /**
+     * API 24+为LocaleList，API 17+为Locale；影响断行规则及字形选择（如中日韩的同码字形）
+     */
+    Object textLocales;
+    /**
+     * 画笔标志位，如LINEAR_TEXT、SUBPIXEL_TEXT、HINTING会改变字宽
+     */
+    int flags;
+    float spacingMult;
+    float spacingAdd;
+
+    /**
+     * 记录当前参数
+     */
+    void set(CharSequence text, int width, TextPaint paint, float spacingMult, float spacingAdd) {
+        this.text = text;
+        this.width = width;
+        this.textSize = paint.getTextSize();
+        this.typeface = paint.getTypeface();
+        this.textScaleX = paint.getTextScaleX();
+        this.textSkewX = paint.getTextSkewX();
+        this.letterSpacing = getLetterSpacing(paint);
+        this.isFakeBold = paint.isFakeBoldText();
+        this.fontFeatureSettings = getFontFeatureSettings(paint);
+        this.textLocales = getTextLocales(paint);
+        this.flags = paint.getFlags();
+        this.spacingMult = spacingMult;
+        this.spacingAdd = spacingAdd;
+    }
+
+    void set(TextLayoutKey key) {
+        this.text = key.text;
+        this.width = key.width;
+        this.textSize = key.textSize;
+        this.typeface = key.typeface;
+        this.textScaleX = key.textScaleX;
+        this.textSkewX = key.textSkewX;
+        this.letterSpacing = key.letterSpacing;
+        this.isFakeBold = key.isFakeBold;
+        this.fontFeatureSettings = key.fontFeatureSettings;
+        this.textLocales = key.textLocales;
+        this.flags = key.flags;
+        this.spacingMult = key.spacingMult;
+        this.spacingAdd = key.spacingAdd;
+    }
+
+    /**
+     * 与当前参数是否一致
+     */
+    boolean matches(CharSequence text, int width, TextPaint paint, float spacingMult, float spacingAdd) {
+        return isSameText(this.text, text)
+                && this.width == width
+                && this.textSize == paint.getTextSize()
+                && this.typeface == paint.getTypeface()
+                && this.textScaleX == paint.getTextScaleX()
+                && this.textSkewX == paint.getTextSkewX()
+                && this.letterSpacing == getLetterSpacing(paint)
+                && this.isFakeBold == paint.isFakeBoldText()
+                && this.flags == paint.getFlags()
+                && TextUtils.equals(this.fontFeatureSettings, getFontFeatureSettings(paint))
+                && ObjectsCompat.equals(this.textLocales, getTextLocales(paint))
+                && this.spacingMult == spacingMult
+                && this.spacingAdd == spacingAdd;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TextLayoutKey)) {
+            return false;
+        }
+        TextLayoutKey key = (TextLayoutKey) o;
+        return isSameText(text, key.text)
+                && width == key.width
+                && textSize == key.textSize
+                && typeface == key.typeface
+                && textScaleX == key.textScaleX
+                && textSkewX == key.textSkewX
+                && letterSpacing == key.letterSpacing
+                && isFakeBold == key.isFakeBold
+                && flags == key.flags
+                && TextUtils.equals(fontFeatureSettings, key.fontFeatureSettings)
+                && ObjectsCompat.equals(textLocales, key.textLocales)
+                && spacingMult == key.spacingMult
+                && spacingAdd == key.spacingAdd;
+    }
+
+    @Override
+    public int hashCode() {
+        /**
+         * 与{@link #isSameText}一致：纯文本按内容，带样式的文本按对象
+         */
+        int result = text instanceof String ? text.hashCode() : System.identityHashCode(text);
+        result = 31 * result + width;
+        result = 31 * result + Float.floatToIntBits(textSize);
+        result = 31 * result + System.identityHashCode(typeface);
+        result = 31 * result + Float.floatToIntBits(textScaleX);
+        result = 31 * result + Float.floatToIntBits(textSkewX);
+        result = 31 * result + Float.floatToIntBits(letterSpacing);
+        result = 31 * result + (isFakeBold ? 1 : 0);
+        result = 31 * result + flags;
+        result = 31 * result + ObjectsCompat.hashCode(fontFeatureSettings);
+        result = 31 * result + ObjectsCompat.hashCode(textLocales);
+        result = 31 * result + Float.floatToIntBits(spacingMult);
+        result = 31 * result + Float.floatToIntBits(spacingAdd);
+        return result;
+    }
+
+    /**
+     * 同一个对象，或者内容相同的纯文本；带样式的文本只按对象判断
+     */
+    private static boolean isSameText(CharSequence a, CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        return a instanceof String && b instanceof String && TextUtils.equals(a, b);
+    }
+
+    private static float getLetterSpacing(TextPaint paint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return paint.getLetterSpacing();
+        }
+        return 0;
+    }
+
+    private static String getFontFeatureSettings(TextPaint paint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return paint.getFontFeatureSettings();
+        }
+        return null;
+    }
+
+    private static Object getTextLocales(TextPaint paint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return paint.getTextLocales();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return paint.getTextLocale();
+        }
+        return null;
+    }
+}
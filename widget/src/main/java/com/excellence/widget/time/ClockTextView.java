@@ -2,20 +2,18 @@ package com.excellence.widget.time;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.database.ContentObserver;
-import android.os.Handler;
-import android.os.SystemClock;
-import android.provider.Settings;
-import android.text.format.DateFormat;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
 import android.util.AttributeSet;
+import android.view.Gravity;
 
-import com.excellence.basetoolslibrary.utils.TimeUtils;
 import com.excellence.widget.R;
 
-import androidx.annotation.StringRes;
-import androidx.appcompat.widget.AppCompatTextView;
+import java.util.TimeZone;
 
-import static android.text.format.DateFormat.is24HourFormat;
+import androidx.annotation.StringRes;
 
 /**
  * <pre>
@@ -25,18 +23,40 @@ import static android.text.format.DateFormat.is24HourFormat;
  *     desc   : 时钟文本
  * </pre>
  */
-public class ClockTextView extends AppCompatTextView {
+public class ClockTextView extends TickTextView implements TimeSettingsObserver.OnTimeSettingsChangedListener {
 
     private static final String TIME_FORMAT = "HH:mm";
+    /**
+     * 等宽数字
+     */
+    private static final String FONT_FEATURE_TABULAR_NUMBERS = "tnum";
+    /**
+     * 绘制方式 0：TextView绘制文本；1：字形图集，适合超大字号的时钟，刷新时只绘制位图，不排版
+     */
+    private static final int DRAW_MODE_TEXT = 0;
+    private static final int DRAW_MODE_ATLAS = 1;
 
     private String mOTimeFormat;
     private String mTimeFormat;
+    private TimeFormatter mTimeFormatter;
+    /**
+     * 时区，null则跟随系统，用于世界时钟
+     */
+    private TimeZone mTimeZone = null;
+    /**
+     * 当前显示的字符，通过{@link #setText(char[], int, int)}显示，只在下一次setText前修改
+     */
+    private char[] mDisplayChars = new char[16];
+    private int mDisplayLength = -1;
 
-    private Handler mHandler;
-    private Runnable mTicker;
-    private FormatChangeObserver mFormatChangeObserver;
-    private boolean isTickerStopped = false;
     private boolean isFollowSystem = true;
+    /**
+     * 固定宽度模式，宽度锁定后TextView#setText只会invalidate，不会requestLayout
+     */
+    private boolean isFixedWidth = false;
+    private int mFixedWidth = -1;
+    private int mDrawMode = DRAW_MODE_TEXT;
+    private GlyphAtlas mGlyphAtlas = null;
 
     public ClockTextView(Context context) {
         this(context, null);
@@ -51,40 +71,182 @@ public class ClockTextView extends AppCompatTextView {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.ClockTextView);
         mOTimeFormat = typedArray.getString(R.styleable.ClockTextView_timeFormat);
         isFollowSystem = typedArray.getBoolean(R.styleable.ClockTextView_isFollowSystem, isFollowSystem);
+        isFixedWidth = typedArray.getBoolean(R.styleable.ClockTextView_fixedWidth, isFixedWidth);
+        mDrawMode = typedArray.getInt(R.styleable.ClockTextView_drawMode, mDrawMode);
+        String timeZoneId = typedArray.getString(R.styleable.ClockTextView_timeZone);
+        if (timeZoneId != null) {
+            mTimeZone = TimeZone.getTimeZone(timeZoneId);
+        }
         typedArray.recycle();
 
+        if (isFixedWidth || mDrawMode == DRAW_MODE_ATLAS) {
+            applyTabularNumbers();
+        }
+
         setTimeFormat(mOTimeFormat);
+    }
 
-        mHandler = new Handler();
-        mTicker = new Ticker();
-        mFormatChangeObserver = new FormatChangeObserver(mHandler);
+    /**
+     * 由共享的{@link ClockTicker}统一回调，不再每个时钟各自投递消息
+     *
+     * @param currentTimeMillis 本次回调的墙上时间
+     */
+    @Override
+    public long onTick(long currentTimeMillis) {
+        updateText(currentTimeMillis);
+        return TimeBoundary.nextBoundary(currentTimeMillis, mTimeFormatter.getTickUnit(),
+                mTimeFormatter.getTimeZone());
     }
 
-    private void runClock() {
-        if (!isTickerStopped) {
-            setText(DateFormat.format(mTimeFormat, System.currentTimeMillis()));
+    /**
+     * 格式化到复用的缓冲区，字符没有变化时不调用setText
+     * 图集模式不经过TextView，只重绘自身
+     *
+     * @param currentTimeMillis 墙上时间
+     */
+    private void updateText(long currentTimeMillis) {
+        int length = mTimeFormatter.format(currentTimeMillis);
+        char[] output = mTimeFormatter.getOutput();
+        if (length == mDisplayLength && equals(output, mDisplayChars, length)) {
+            return;
+        }
+        if (length > mDisplayChars.length) {
+            mDisplayChars = new char[Math.max(length, mDisplayChars.length * 2)];
+        }
+        System.arraycopy(output, 0, mDisplayChars, 0, length);
+        mDisplayLength = length;
+        if (isAtlasMode()) {
             invalidate();
-            long uptimeMillis = SystemClock.uptimeMillis();
-            uptimeMillis += TimeUtils.SEC - (uptimeMillis % TimeUtils.SEC);
-            mHandler.postAtTime(mTicker, uptimeMillis);
+        } else {
+            setText(mDisplayChars, 0, length);
         }
     }
 
+    /**
+     * 格式包含图集不支持的字段时，退回TextView绘制
+     *
+     * @return
+     */
+    private boolean isAtlasMode() {
+        return mDrawMode == DRAW_MODE_ATLAS && mTimeFormatter != null && mTimeFormatter.getGlyphs() != null;
+    }
+
+    private static boolean equals(char[] a, char[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     protected void onAttachedToWindow() {
+        TimeSettingsObserver.getInstance().register(getContext(), this);
+        /**
+         * 未显示期间设置可能已变化，在开始订阅刷新前更新
+         */
+        setTimeFormat(mOTimeFormat);
         super.onAttachedToWindow();
-        isTickerStopped = false;
-        getContext().getContentResolver()
-                .registerContentObserver(Settings.System.CONTENT_URI, true, mFormatChangeObserver);
-        mTicker.run();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        isTickerStopped = true;
-        getContext().getContentResolver().unregisterContentObserver(mFormatChangeObserver);
-        mHandler.removeCallbacksAndMessages(null);
+        TimeSettingsObserver.getInstance().unregister(this);
+        /**
+         * 图集保留到画笔或字符集变化，切换页面、列表复用重新挂载时不再光栅化；控件释放后随GC回收
+         */
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!isAtlasMode()) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        /**
+         * 图集模式按最宽的文本测量，刷新时尺寸不变
+         */
+        Paint.FontMetricsInt fm = getPaint().getFontMetricsInt();
+        int width = (int) Math.ceil(mTimeFormatter.measureMaxWidth(getPaint()))
+                + getCompoundPaddingLeft() + getCompoundPaddingRight();
+        int height = fm.bottom - fm.top + getCompoundPaddingTop() + getCompoundPaddingBottom();
+        width = Math.max(width, getSuggestedMinimumWidth());
+        height = Math.max(height, getSuggestedMinimumHeight());
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (!isAtlasMode()) {
+            super.onDraw(canvas);
+            return;
+        }
+        if (mDisplayLength <= 0) {
+            return;
+        }
+        ensureGlyphAtlas();
+
+        int left = getCompoundPaddingLeft();
+        int contentWidth = getWidth() - left - getCompoundPaddingRight();
+        float textWidth = mGlyphAtlas.measure(mDisplayChars, mDisplayLength);
+        int gravity = getGravity();
+        float x = left;
+        switch (Gravity.getAbsoluteGravity(gravity, getLayoutDirection()) & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.CENTER_HORIZONTAL:
+                x += (contentWidth - textWidth) / 2;
+                break;
+
+            case Gravity.RIGHT:
+                x += contentWidth - textWidth;
+                break;
+
+            default:
+                break;
+        }
+        mGlyphAtlas.draw(canvas, mDisplayChars, mDisplayLength, x, getAtlasTop(), getCurrentTextColor());
+    }
+
+    @Override
+    public int getBaseline() {
+        if (!isAtlasMode()) {
+            return super.getBaseline();
+        }
+        /**
+         * 图集模式不经过TextView的排版，按图集的绘制位置给出基线，保证baseline对齐
+         */
+        ensureGlyphAtlas();
+        return (int) getAtlasTop() + mGlyphAtlas.getBaseline();
+    }
+
+    private void ensureGlyphAtlas() {
+        if (mGlyphAtlas == null) {
+            mGlyphAtlas = new GlyphAtlas();
+        }
+        mGlyphAtlas.ensure(getPaint(), mTimeFormatter.getGlyphs());
+    }
+
+    /**
+     * @return 图集文本按垂直对齐方式的顶部位置
+     */
+    private float getAtlasTop() {
+        int top = getCompoundPaddingTop();
+        int contentHeight = getHeight() - top - getCompoundPaddingBottom();
+        float y = top;
+        switch (getGravity() & Gravity.VERTICAL_GRAVITY_MASK) {
+            case Gravity.CENTER_VERTICAL:
+                y += (contentHeight - mGlyphAtlas.getHeight()) / 2f;
+                break;
+
+            case Gravity.BOTTOM:
+                y += contentHeight - mGlyphAtlas.getHeight();
+                break;
+
+            default:
+                break;
+        }
+        return y;
     }
 
     private String transferTimeFormat(String timeFormat) {
@@ -93,7 +255,7 @@ public class ClockTextView extends AppCompatTextView {
         }
 
         if (isFollowSystem) {
-            if (is24HourFormat(getContext())) {
+            if (TimeSettingsObserver.getInstance().is24HourFormat(getContext())) {
                 timeFormat = timeFormat.replace("a", "").trim()
                         .replace("hh", "HH");
             } else {
@@ -118,30 +280,110 @@ public class ClockTextView extends AppCompatTextView {
     public void setTimeFormat(String timeFormat) {
         mOTimeFormat = timeFormat;
         mTimeFormat = transferTimeFormat(timeFormat);
+        TimeFormatter timeFormatter = TimeFormatter.obtain(mTimeFormat, mTimeZone);
+        if (timeFormatter == mTimeFormatter) {
+            /**
+             * 格式、语言、时区都未变化（如重新挂载时），显示内容及尺寸不变
+             */
+            return;
+        }
+        mTimeFormatter = timeFormatter;
+        mDisplayLength = -1;
+        if (isAtlasMode()) {
+            setText(null);
+            requestLayout();
+        }
+        updateFixedWidth();
+        /**
+         * 格式变化后立即刷新，并按新的粒度重新对齐
+         */
+        refreshTick();
     }
 
-    private class FormatChangeObserver extends ContentObserver {
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
 
-        /**
-         * Creates a content observer.
-         *
-         * @param handler The handler to run {@link #onChange} on, or null if none.
-         */
-        private FormatChangeObserver(Handler handler) {
-            super(handler);
-        }
+    /**
+     * 设置时区，多个时区的时钟共用同一个调度器、设置监听，相同配置共用格式化实例
+     *
+     * @param timeZoneId 如"Asia/Shanghai"，null则跟随系统
+     */
+    public void setTimeZone(String timeZoneId) {
+        setTimeZone(timeZoneId == null ? null : TimeZone.getTimeZone(timeZoneId));
+    }
 
-        @Override
-        public void onChange(boolean selfChange) {
-            setTimeFormat(mOTimeFormat);
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        setTimeFormat(mOTimeFormat);
+    }
+
+    public boolean isFixedWidth() {
+        return isFixedWidth;
+    }
+
+    public void setFixedWidth(boolean fixedWidth) {
+        if (isFixedWidth == fixedWidth) {
+            return;
+        }
+        isFixedWidth = fixedWidth;
+        if (isFixedWidth) {
+            applyTabularNumbers();
+            updateFixedWidth();
+        } else {
+            mFixedWidth = -1;
+            setMinWidth(0);
+            setMaxWidth(Integer.MAX_VALUE);
         }
     }
 
-    private class Ticker implements Runnable {
+    @Override
+    public void setTextSize(int unit, float size) {
+        super.setTextSize(unit, size);
+        updateFixedWidth();
+    }
+
+    @Override
+    public void setTypeface(Typeface tf) {
+        super.setTypeface(tf);
+        updateFixedWidth();
+    }
+
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        updateFixedWidth();
+    }
+
+    private void applyTabularNumbers() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setFontFeatureSettings(FONT_FEATURE_TABULAR_NUMBERS);
+        }
+    }
 
-        @Override
-        public void run() {
-            runClock();
+    /**
+     * 按最宽的文本锁定宽度，只在格式、字号、字体、边距变化时重新计算
+     */
+    private void updateFixedWidth() {
+        /**
+         * 父类构造时会回调setTypeface等，此时还未初始化
+         */
+        if (!isFixedWidth || mTimeFormatter == null) {
+            return;
         }
+        int width = (int) Math.ceil(mTimeFormatter.measureMaxWidth(getPaint()))
+                + getCompoundPaddingLeft() + getCompoundPaddingRight();
+        if (width != mFixedWidth) {
+            mFixedWidth = width;
+            setWidth(width);
+        }
+    }
+
+    /**
+     * 由共享的{@link TimeSettingsObserver}回调：12/24小时制、时区或语言变化时重新编译格式
+     */
+    @Override
+    public void onTimeSettingsChanged() {
+        setTimeFormat(mOTimeFormat);
     }
 }
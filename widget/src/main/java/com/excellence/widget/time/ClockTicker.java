@@ -0,0 +1,327 @@
+package com.excellence.widget.time;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 进程内共享的时钟调度器
+ *              所有显示中的时钟共用一个Handler，订阅者各自返回下一次需要刷新的时间，
+ *              调度器只在最近的边界投递一次消息，一次性刷新所有到期的订阅者；
+ *              熄屏期间不投递任何消息，亮屏后立即刷新一次再重新对齐；
+ *              边界按墙上时间计算，系统时间、时区变化或唤醒后重新同步；
+ *              订阅者可设置允许的延迟，延迟范围内到期的订阅者合并到同一次消息
+ * </pre>
+ */
+public final class ClockTicker {
+
+    /**
+     * 订阅者不再需要回调时返回
+     */
+    public static final long NO_TICK = Long.MAX_VALUE;
+
+    private static ClockTicker sInstance = null;
+
+    private final Handler mHandler;
+    private final TimeSource mTimeSource;
+    private final Runnable mTicker = this::tick;
+    private final List<Subscriber> mSubscribers = new ArrayList<>();
+    /**
+     * 分发过程中订阅者可能增删，复用该列表做快照，避免每次分发都分配
+     */
+    private final List<Subscriber> mDispatching = new ArrayList<>();
+    /**
+     * 已投递消息对应的墙上时间，{@link #NO_TICK}表示没有投递
+     */
+    private long mScheduledTimeMillis = NO_TICK;
+    private final BroadcastReceiver mReceiver;
+    private Context mContext = null;
+    private boolean isScreenOff = false;
+
+    public static ClockTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTicker();
+        }
+        return sInstance;
+    }
+
+    private ClockTicker() {
+        this(TimeSource.SYSTEM);
+    }
+
+    /**
+     * @param timeSource 时间来源，测试时注入虚拟时钟
+     */
+    ClockTicker(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        mHandler = new Handler(Looper.getMainLooper());
+        mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String action = intent.getAction();
+                if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+                    setScreenOff(true);
+                } else if (Intent.ACTION_SCREEN_ON.equals(action)) {
+                    setScreenOff(false);
+                } else {
+                    /**
+                     * 系统时间、时区变化：之前按旧时间计算的边界已失效
+                     */
+                    resync();
+                }
+            }
+        };
+    }
+
+    /**
+     * 订阅，必须在主线程调用；订阅后立即回调一次
+     *
+     * @param context
+     * @param listener 订阅者
+     */
+    public void register(Context context, OnTickListener listener) {
+        register(context, listener, 0);
+    }
+
+    /**
+     * 订阅，必须在主线程调用；订阅后立即回调一次
+     *
+     * @param context
+     * @param listener 订阅者
+     * @param slackMillis 允许的延迟，单位ms，大量订阅者的边界不一致时合并到同一次消息刷新
+     */
+    public void register(Context context, OnTickListener listener, long slackMillis) {
+        if (listener == null || indexOf(listener) >= 0) {
+            return;
+        }
+        if (mSubscribers.isEmpty()) {
+            registerReceiver(context);
+        }
+        Subscriber subscriber = new Subscriber(listener, Math.max(0, slackMillis));
+        mSubscribers.add(subscriber);
+        dispatch(subscriber, mTimeSource.currentTimeMillis());
+        schedule();
+    }
+
+    /**
+     * 取消订阅，必须在主线程调用；没有订阅者时不再投递任何消息
+     *
+     * @param listener 订阅者
+     */
+    public void unregister(OnTickListener listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        mSubscribers.remove(index).isRemoved = true;
+        if (mSubscribers.isEmpty()) {
+            cancel();
+            unregisterReceiver();
+        }
+    }
+
+    /**
+     * 订阅者的显示规则变化时（如时间格式）立即回调一次，并按新的边界重新调度
+     *
+     * @param listener 订阅者
+     */
+    public void refresh(OnTickListener listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return;
+        }
+        dispatch(mSubscribers.get(index), mTimeSource.currentTimeMillis());
+        schedule();
+    }
+
+    /**
+     * 当前订阅数量
+     *
+     * @return
+     */
+    public int getListenerCount() {
+        return mSubscribers.size();
+    }
+
+    private void registerReceiver(Context context) {
+        mContext = context.getApplicationContext();
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            isScreenOff = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH
+                    ? !powerManager.isInteractive() : !powerManager.isScreenOn();
+        }
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        mContext.registerReceiver(mReceiver, filter, null, mHandler);
+    }
+
+    private void unregisterReceiver() {
+        if (mContext != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mContext = null;
+        }
+        isScreenOff = false;
+    }
+
+    private void setScreenOff(boolean screenOff) {
+        if (isScreenOff == screenOff) {
+            return;
+        }
+        isScreenOff = screenOff;
+        if (isScreenOff) {
+            cancel();
+            return;
+        }
+        /**
+         * 亮屏即唤醒，深度睡眠期间uptime停止，已投递的消息会延迟
+         */
+        resync();
+    }
+
+    /**
+     * 立即刷新所有订阅者，再按各自的边界重新对齐
+     */
+    private void resync() {
+        cancel();
+        if (isScreenOff) {
+            /**
+             * 熄屏期间不刷新，亮屏时会再次同步
+             */
+            return;
+        }
+        long currentTimeMillis = mTimeSource.currentTimeMillis();
+        mDispatching.addAll(mSubscribers);
+        for (Subscriber subscriber : mDispatching) {
+            if (!subscriber.isRemoved) {
+                dispatch(subscriber, currentTimeMillis);
+            }
+        }
+        mDispatching.clear();
+        schedule();
+    }
+
+    private int indexOf(OnTickListener listener) {
+        for (int i = 0; i < mSubscribers.size(); i++) {
+            if (mSubscribers.get(i).listener == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void dispatch(Subscriber subscriber, long currentTimeMillis) {
+        subscriber.nextTimeMillis = subscriber.listener.onTick(currentTimeMillis);
+    }
+
+    private void tick() {
+        mScheduledTimeMillis = NO_TICK;
+        long currentTimeMillis = mTimeSource.currentTimeMillis();
+        mDispatching.addAll(mSubscribers);
+        for (Subscriber subscriber : mDispatching) {
+            /**
+             * 分发过程中已被取消订阅的不再回调，未到边界的不回调
+             */
+            if (!subscriber.isRemoved && subscriber.nextTimeMillis <= currentTimeMillis) {
+                dispatch(subscriber, currentTimeMillis);
+            }
+        }
+        mDispatching.clear();
+        schedule();
+    }
+
+    private void schedule() {
+        if (isScreenOff) {
+            return;
+        }
+        /**
+         * 在最早的截止时间（边界 + 允许的延迟）投递，届时所有边界已到的订阅者一起刷新
+         */
+        long nextTimeMillis = NO_TICK;
+        for (Subscriber subscriber : mSubscribers) {
+            if (subscriber.nextTimeMillis != NO_TICK) {
+                nextTimeMillis = Math.min(nextTimeMillis, subscriber.nextTimeMillis + subscriber.slackMillis);
+            }
+        }
+        if (nextTimeMillis >= mScheduledTimeMillis) {
+            /**
+             * 已投递的消息更早或相同，无需重新投递
+             */
+            return;
+        }
+        cancel();
+        mScheduledTimeMillis = nextTimeMillis;
+        /**
+         * Handler按uptime投递，边界按墙上时间计算，两者相位不同，每次投递前重新换算；
+         * 提前到达时订阅者的边界未到，会按剩余时间再次投递
+         */
+        long delayMillis = Math.max(0, nextTimeMillis - mTimeSource.currentTimeMillis());
+        mHandler.postAtTime(mTicker, mTimeSource.uptimeMillis() + delayMillis);
+    }
+
+    private void cancel() {
+        mHandler.removeCallbacks(mTicker);
+        mScheduledTimeMillis = NO_TICK;
+    }
+
+    private static class Subscriber {
+
+        private final OnTickListener listener;
+        private final long slackMillis;
+        private long nextTimeMillis = NO_TICK;
+        private boolean isRemoved = false;
+
+        private Subscriber(OnTickListener listener, long slackMillis) {
+            this.listener = listener;
+            this.slackMillis = slackMillis;
+        }
+    }
+
+    /**
+     * 墙上时间及Handler投递使用的uptime
+     */
+    interface TimeSource {
+
+        TimeSource SYSTEM = new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public long uptimeMillis() {
+                return SystemClock.uptimeMillis();
+            }
+        };
+
+        long currentTimeMillis();
+
+        long uptimeMillis();
+    }
+
+    public interface OnTickListener {
+
+        /**
+         * 时间边界回调，同一边界到期的订阅者在同一次消息中依次回调
+         *
+         * @param currentTimeMillis 本次回调的墙上时间
+         * @return 下一次需要回调的墙上时间，不再需要时返回{@link #NO_TICK}
+         */
+        long onTick(long currentTimeMillis);
+    }
+}
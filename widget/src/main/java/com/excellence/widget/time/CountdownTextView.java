@@ -0,0 +1,155 @@
+package com.excellence.widget.time;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.text.format.DateUtils;
+import android.util.AttributeSet;
+
+import com.excellence.widget.R;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 倒计时文本
+ *              剩余时间超过阈值时显示"H:MM"，按分钟刷新；阈值以内显示"MM:SS"或"H:MM:SS"，按秒刷新；
+ *              只在文本变化的时刻刷新，大量实例共用{@link ClockTicker}
+ * </pre>
+ */
+public class CountdownTextView extends TickTextView {
+
+    /**
+     * 允许的刷新延迟，目标时间不同的实例合并刷新
+     */
+    private static final long TICK_SLACK = 100;
+    private static final long DEFAULT_SECONDS_THRESHOLD = DateUtils.HOUR_IN_MILLIS;
+
+    private long mEndTime = 0;
+    /**
+     * 剩余时间在该阈值以内才按秒显示，单位ms
+     */
+    private long mSecondsThreshold = DEFAULT_SECONDS_THRESHOLD;
+    private final StringBuilder mRecycle = new StringBuilder(8);
+    /**
+     * 当前显示的值，单位为显示的精度（秒或分钟），用于判断是否需要setText
+     */
+    private long mDisplayValue = -1;
+    private boolean isDisplayMinutes = false;
+    private boolean isFinished = false;
+    private OnCountdownListener mOnCountdownListener = null;
+
+    public CountdownTextView(Context context) {
+        this(context, null);
+    }
+
+    public CountdownTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public CountdownTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.CountdownTextView);
+        mSecondsThreshold = typedArray.getInt(R.styleable.CountdownTextView_secondsThreshold,
+                (int) (DEFAULT_SECONDS_THRESHOLD / DateUtils.SECOND_IN_MILLIS)) * DateUtils.SECOND_IN_MILLIS;
+        typedArray.recycle();
+    }
+
+    /**
+     * 设置结束时间
+     *
+     * @param endTime 结束的墙上时间
+     */
+    public void setEndTime(long endTime) {
+        mEndTime = endTime;
+        mDisplayValue = -1;
+        isFinished = false;
+        refreshTick();
+    }
+
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    /**
+     * 对应xml的app:secondsThreshold，xml中单位为s
+     *
+     * @param secondsThresholdMillis 剩余时间在该阈值以内才按秒显示，单位ms
+     */
+    public void setSecondsThresholdMillis(long secondsThresholdMillis) {
+        mSecondsThreshold = secondsThresholdMillis;
+        mDisplayValue = -1;
+        refreshTick();
+    }
+
+    public void setOnCountdownListener(OnCountdownListener listener) {
+        mOnCountdownListener = listener;
+    }
+
+    @Override
+    protected long getTickSlack() {
+        return TICK_SLACK;
+    }
+
+    @Override
+    public long onTick(long currentTimeMillis) {
+        if (mEndTime <= 0) {
+            return ClockTicker.NO_TICK;
+        }
+        long remaining = mEndTime - currentTimeMillis;
+        if (remaining <= 0) {
+            updateText(0, false);
+            if (!isFinished) {
+                isFinished = true;
+                if (mOnCountdownListener != null) {
+                    mOnCountdownListener.onFinish();
+                }
+            }
+            return ClockTicker.NO_TICK;
+        }
+
+        if (remaining > mSecondsThreshold) {
+            /**
+             * 按分钟向上取整，低于(minutes - 1)分钟或进入阈值时变化
+             */
+            long minutes = (remaining + DateUtils.MINUTE_IN_MILLIS - 1) / DateUtils.MINUTE_IN_MILLIS;
+            updateText(minutes, true);
+            return Math.min(mEndTime - (minutes - 1) * DateUtils.MINUTE_IN_MILLIS, mEndTime - mSecondsThreshold);
+        }
+
+        /**
+         * 按秒向上取整，结束时刚好显示0
+         */
+        long seconds = (remaining + DateUtils.SECOND_IN_MILLIS - 1) / DateUtils.SECOND_IN_MILLIS;
+        updateText(seconds, false);
+        return mEndTime - (seconds - 1) * DateUtils.SECOND_IN_MILLIS;
+    }
+
+    private void updateText(long value, boolean isMinutes) {
+        if (value == mDisplayValue && isMinutes == isDisplayMinutes) {
+            return;
+        }
+        mDisplayValue = value;
+        isDisplayMinutes = isMinutes;
+        if (isMinutes) {
+            mRecycle.setLength(0);
+            mRecycle.append(value / 60).append(':');
+            long minutes = value % 60;
+            if (minutes < 10) {
+                mRecycle.append('0');
+            }
+            mRecycle.append(minutes);
+            setText(mRecycle.toString());
+        } else {
+            setText(DateUtils.formatElapsedTime(mRecycle, value));
+        }
+    }
+
+    public interface OnCountdownListener {
+
+        /**
+         * 倒计时结束
+         */
+        void onFinish();
+    }
+}
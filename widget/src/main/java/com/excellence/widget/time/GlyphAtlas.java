@@ -0,0 +1,193 @@
+package com.excellence.widget.time;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 字形图集
+ *              把时钟可能用到的字符一次性光栅化到一张ALPHA_8位图中，每次刷新只绘制几块位图，
+ *              不再排版、塑形；画笔字号、字体等变化时才重新光栅化，颜色在绘制时着色，变化无需重建
+ * </pre>
+ */
+final class GlyphAtlas {
+
+    /**
+     * 图集每行最大宽度，超出换行，避免大字号时位图过宽
+     */
+    private static final int MAX_ROW_WIDTH = 2048;
+
+    private final TextPaint mRasterPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    private Bitmap mBitmap = null;
+    private String mGlyphs = null;
+    private float[] mAdvances;
+    private int[] mCellLeft;
+    private int[] mCellTop;
+    private int mCellHeight;
+    /**
+     * 字形四周留白，防止斜体、字形超出步进宽度时被裁剪
+     */
+    private int mPadding;
+    /**
+     * 单元格顶部到基线的距离
+     */
+    private int mBaseline;
+
+    /**
+     * 光栅化时的画笔状态
+     */
+    private float mTextSize;
+    private Typeface mTypeface;
+    private float mTextScaleX;
+    private float mTextSkewX;
+    private boolean isFakeBold;
+    private String mFontFeatureSettings;
+
+    /**
+     * 画笔、字符集变化时重新光栅化
+     *
+     * @param paint 绘制的画笔
+     * @param glyphs 需要的字符
+     */
+    void ensure(TextPaint paint, String glyphs) {
+        if (mBitmap != null && glyphs.equals(mGlyphs) && matches(paint)) {
+            return;
+        }
+        rasterize(paint, glyphs);
+    }
+
+    int getBaseline() {
+        return mBaseline - mPadding;
+    }
+
+    int getHeight() {
+        return mCellHeight - mPadding * 2;
+    }
+
+    /**
+     * @return 文本宽度，字符不在图集中时按0计算
+     */
+    float measure(char[] text, int length) {
+        float width = 0;
+        for (int i = 0; i < length; i++) {
+            int index = mGlyphs.indexOf(text[i]);
+            if (index >= 0) {
+                width += mAdvances[index];
+            }
+        }
+        return width;
+    }
+
+    /**
+     * 逐个字符从图集中绘制
+     *
+     * @param canvas
+     * @param text 字符
+     * @param length 长度
+     * @param x 起始位置
+     * @param top 顶部位置
+     * @param color 颜色
+     */
+    void draw(Canvas canvas, char[] text, int length, float x, float top, int color) {
+        mBitmapPaint.setColor(color);
+        int dstTop = Math.round(top) - mPadding;
+        for (int i = 0; i < length; i++) {
+            int index = mGlyphs.indexOf(text[i]);
+            if (index < 0) {
+                continue;
+            }
+            int cellWidth = (int) Math.ceil(mAdvances[index]) + mPadding * 2;
+            mSrc.set(mCellLeft[index], mCellTop[index],
+                    mCellLeft[index] + cellWidth, mCellTop[index] + mCellHeight);
+            int dstLeft = Math.round(x) - mPadding;
+            mDst.set(dstLeft, dstTop, dstLeft + cellWidth, dstTop + mCellHeight);
+            canvas.drawBitmap(mBitmap, mSrc, mDst, mBitmapPaint);
+            x += mAdvances[index];
+        }
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+        mGlyphs = null;
+    }
+
+    private boolean matches(TextPaint paint) {
+        return mTextSize == paint.getTextSize()
+                && mTypeface == paint.getTypeface()
+                && mTextScaleX == paint.getTextScaleX()
+                && mTextSkewX == paint.getTextSkewX()
+                && isFakeBold == paint.isFakeBoldText()
+                && TextUtils.equals(mFontFeatureSettings, getFontFeatureSettings(paint));
+    }
+
+    private void rasterize(TextPaint paint, String glyphs) {
+        recycle();
+        mTextSize = paint.getTextSize();
+        mTypeface = paint.getTypeface();
+        mTextScaleX = paint.getTextScaleX();
+        mTextSkewX = paint.getTextSkewX();
+        isFakeBold = paint.isFakeBoldText();
+        mFontFeatureSettings = getFontFeatureSettings(paint);
+
+        mRasterPaint.set(paint);
+        mRasterPaint.setColor(0xFFFFFFFF);
+        mRasterPaint.setShader(null);
+        mRasterPaint.clearShadowLayer();
+
+        Paint.FontMetricsInt fm = mRasterPaint.getFontMetricsInt();
+        mPadding = (int) Math.ceil(mTextSize / 8);
+        mBaseline = -fm.top + mPadding;
+        mCellHeight = fm.bottom - fm.top + mPadding * 2;
+
+        int count = glyphs.length();
+        mGlyphs = glyphs;
+        mAdvances = new float[count];
+        mCellLeft = new int[count];
+        mCellTop = new int[count];
+        int left = 0;
+        int top = 0;
+        int bitmapWidth = 0;
+        for (int i = 0; i < count; i++) {
+            mAdvances[i] = mRasterPaint.measureText(glyphs, i, i + 1);
+            int cellWidth = (int) Math.ceil(mAdvances[i]) + mPadding * 2;
+            if (left > 0 && left + cellWidth > MAX_ROW_WIDTH) {
+                left = 0;
+                top += mCellHeight;
+            }
+            mCellLeft[i] = left;
+            mCellTop[i] = top;
+            left += cellWidth;
+            bitmapWidth = Math.max(bitmapWidth, left);
+        }
+
+        mBitmap = Bitmap.createBitmap(Math.max(1, bitmapWidth), top + mCellHeight, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < count; i++) {
+            canvas.drawText(glyphs, i, i + 1,
+                    mCellLeft[i] + mPadding, mCellTop[i] + mBaseline, mRasterPaint);
+        }
+    }
+
+    private static String getFontFeatureSettings(Paint paint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return paint.getFontFeatureSettings();
+        }
+        return null;
+    }
+}
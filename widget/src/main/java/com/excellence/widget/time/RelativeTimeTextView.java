@@ -0,0 +1,120 @@
+package com.excellence.widget.time;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.text.format.DateUtils;
+import android.util.AttributeSet;
+
+import java.util.TimeZone;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 相对时间文本，如"5分钟后"、"3分钟前"
+ *              计算文本下一次变化的时刻，只在该时刻刷新：远离目标时按分钟、小时、天，接近目标时按秒；
+ *              大量实例共用{@link ClockTicker}，允许少量延迟以合并到同一次消息
+ * </pre>
+ */
+public class RelativeTimeTextView extends TickTextView {
+
+    /**
+     * 允许的刷新延迟，列表中大量目标时间不同的实例合并刷新
+     */
+    private static final long TICK_SLACK = DateUtils.SECOND_IN_MILLIS / 2;
+
+    private long mTime = 0;
+    private int mFlags = DateUtils.FORMAT_ABBREV_RELATIVE;
+
+    public RelativeTimeTextView(Context context) {
+        this(context, null);
+    }
+
+    public RelativeTimeTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public RelativeTimeTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 设置目标时间
+     *
+     * @param time 目标的墙上时间
+     */
+    public void setTime(long time) {
+        mTime = time;
+        refreshTick();
+    }
+
+    public long getTime() {
+        return mTime;
+    }
+
+    /**
+     * @param flags {@link DateUtils#getRelativeTimeSpanString(long, long, long, int)}的flags
+     */
+    public void setFlags(int flags) {
+        mFlags = flags;
+        refreshTick();
+    }
+
+    @Override
+    protected long getTickSlack() {
+        return TICK_SLACK;
+    }
+
+    @Override
+    public long onTick(long currentTimeMillis) {
+        long duration = Math.abs(mTime - currentTimeMillis);
+        long resolution = duration < DateUtils.MINUTE_IN_MILLIS
+                ? DateUtils.SECOND_IN_MILLIS : DateUtils.MINUTE_IN_MILLIS;
+        CharSequence text = DateUtils.getRelativeTimeSpanString(mTime, currentTimeMillis, resolution, mFlags);
+        if (!TextUtils.equals(text, getText())) {
+            setText(text);
+        }
+        return nextChangeTime(currentTimeMillis, duration);
+    }
+
+    /**
+     * 文本下一次变化的时刻，与{@link DateUtils#getRelativeTimeSpanString}的取整规则一致
+     */
+    private long nextChangeTime(long currentTimeMillis, long duration) {
+        boolean isFuture = mTime > currentTimeMillis;
+        if (duration >= DateUtils.DAY_IN_MILLIS) {
+            /**
+             * 超过一天按自然日显示，只在跨零点时变化；未来的目标还需在进入一天之内时切换为按小时显示
+             */
+            long next = TimeBoundary.nextBoundary(currentTimeMillis, DateUtils.DAY_IN_MILLIS, TimeZone.getDefault());
+            if (isFuture) {
+                next = Math.min(next, mTime - DateUtils.DAY_IN_MILLIS + 1);
+            }
+            return Math.max(next, currentTimeMillis + 1);
+        }
+
+        long unit;
+        if (duration < DateUtils.MINUTE_IN_MILLIS) {
+            unit = DateUtils.SECOND_IN_MILLIS;
+        } else if (duration < DateUtils.HOUR_IN_MILLIS) {
+            unit = DateUtils.MINUTE_IN_MILLIS;
+        } else {
+            unit = DateUtils.HOUR_IN_MILLIS;
+        }
+
+        long next;
+        if (isFuture) {
+            /**
+             * 未来：剩余时间递减，低于count * unit即变化
+             */
+            next = mTime - (duration / unit) * unit + 1;
+        } else {
+            /**
+             * 过去：已过时间递增，到达(count + 1) * unit即变化
+             */
+            next = mTime + (duration / unit + 1) * unit;
+        }
+        return Math.max(next, currentTimeMillis + 1);
+    }
+}
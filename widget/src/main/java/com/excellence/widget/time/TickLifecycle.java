@@ -0,0 +1,82 @@
+package com.excellence.widget.time;
+
+import android.view.View;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 随时间刷新的控件共用的订阅生命周期
+ *              只有真正显示时才订阅共享的{@link ClockTicker}，不可见（自身或父布局GONE/INVISIBLE、窗口被遮挡隐藏）时暂停；
+ *              控件在挂载、可见性变化的回调中转发到这里
+ * </pre>
+ */
+class TickLifecycle {
+
+    private final View mView;
+    private final ClockTicker.OnTickListener mListener;
+    private boolean isAttached = false;
+    /**
+     * 是否正在订阅{@link ClockTicker}
+     */
+    private boolean isTicking = false;
+
+    /**
+     * @param view 显示的控件，根据它的挂载及可见状态订阅
+     * @param listener 订阅者，一般是控件自身
+     */
+    TickLifecycle(View view, ClockTicker.OnTickListener listener) {
+        mView = view;
+        mListener = listener;
+    }
+
+    /**
+     * 允许的刷新延迟，延迟范围内到期的订阅者合并到同一次消息
+     *
+     * @return 单位ms
+     */
+    long getSlackMillis() {
+        return 0;
+    }
+
+    boolean isTicking() {
+        return isTicking;
+    }
+
+    /**
+     * onAttachedToWindow/onDetachedFromWindow时调用
+     *
+     * @param attached 是否挂载到窗口
+     */
+    void setAttached(boolean attached) {
+        isAttached = attached;
+        update();
+    }
+
+    /**
+     * 可见性变化时调用：onVisibilityAggregated、onVisibilityChanged（Android N以下没有onVisibilityAggregated）、
+     * onWindowVisibilityChanged
+     */
+    void update() {
+        boolean shouldTick = isAttached && mView.isShown() && mView.getWindowVisibility() == View.VISIBLE;
+        if (shouldTick == isTicking) {
+            return;
+        }
+        isTicking = shouldTick;
+        if (isTicking) {
+            ClockTicker.getInstance().register(mView.getContext(), mListener, getSlackMillis());
+        } else {
+            ClockTicker.getInstance().unregister(mListener);
+        }
+    }
+
+    /**
+     * 显示规则变化时立即刷新，并按新的边界重新调度；未订阅时不处理，恢复订阅时会立即刷新
+     */
+    void refresh() {
+        if (isTicking) {
+            ClockTicker.getInstance().refresh(mListener);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.excellence.widget.time;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.appcompat.widget.AppCompatTextView;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 随时间刷新的文本
+ *              只有真正显示时才订阅共享的{@link ClockTicker}，订阅的生命周期见{@link TickLifecycle}；
+ *              恢复时订阅会立即刷新一次，再对齐到下一个边界；熄屏由{@link ClockTicker}统一暂停
+ * </pre>
+ */
+public abstract class TickTextView extends AppCompatTextView implements ClockTicker.OnTickListener {
+
+    private final TickLifecycle mTickLifecycle = new TickLifecycle(this, this) {
+        @Override
+        long getSlackMillis() {
+            return getTickSlack();
+        }
+    };
+
+    public TickTextView(Context context) {
+        this(context, null);
+    }
+
+    public TickTextView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public TickTextView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 允许的刷新延迟，延迟范围内到期的实例合并到同一次消息
+     *
+     * @return 单位ms
+     */
+    protected long getTickSlack() {
+        return 0;
+    }
+
+    /**
+     * 显示规则变化时（如格式、目标时间）立即刷新，并按新的边界重新调度
+     */
+    protected void refreshTick() {
+        mTickLifecycle.refresh();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mTickLifecycle.setAttached(true);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mTickLifecycle.setAttached(false);
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        updateTicking();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        /**
+         * Android N以下没有onVisibilityAggregated
+         */
+        updateTicking();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateTicking();
+    }
+
+    private void updateTicking() {
+        /**
+         * 父类构造时（如xml设置visibility）可能已回调可见性变化，此时尚未初始化，也未挂载
+         */
+        if (mTickLifecycle != null) {
+            mTickLifecycle.update();
+        }
+    }
+}
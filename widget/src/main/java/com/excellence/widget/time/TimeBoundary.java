@@ -0,0 +1,111 @@
+package com.excellence.widget.time;
+
+import android.text.format.DateUtils;
+
+import java.util.TimeZone;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 根据时间格式计算刷新粒度及下一个刷新边界
+ * </pre>
+ */
+final class TimeBoundary {
+
+    private TimeBoundary() {
+    }
+
+    /**
+     * 解析格式中最小的时间字段：秒、分、时、天
+     * 如"HH:mm"只需每分钟刷新一次
+     *
+     * @param timeFormat {@link android.text.format.DateFormat}格式
+     * @return 刷新粒度，单位ms
+     */
+    static long resolveTickUnit(String timeFormat) {
+        long unit = DateUtils.DAY_IN_MILLIS;
+        if (timeFormat == null) {
+            return unit;
+        }
+        boolean isQuoted = false;
+        for (int i = 0; i < timeFormat.length(); i++) {
+            char c = timeFormat.charAt(i);
+            if (c == '\'') {
+                /**
+                 * 引号内为普通文本，''表示单引号本身，两者都不影响粒度
+                 */
+                isQuoted = !isQuoted;
+                continue;
+            }
+            if (isQuoted || !isLetter(c)) {
+                continue;
+            }
+            switch (c) {
+                case 's':
+                    return DateUtils.SECOND_IN_MILLIS;
+
+                case 'm':
+                    unit = Math.min(unit, DateUtils.MINUTE_IN_MILLIS);
+                    break;
+
+                case 'h':
+                case 'H':
+                case 'k':
+                case 'K':
+                case 'a':
+                    unit = Math.min(unit, DateUtils.HOUR_IN_MILLIS);
+                    break;
+
+                case 'd':
+                case 'E':
+                case 'c':
+                case 'M':
+                case 'L':
+                case 'y':
+                case 'z':
+                    break;
+
+                default:
+                    /**
+                     * 不认识的字段，保守按秒刷新
+                     */
+                    return DateUtils.SECOND_IN_MILLIS;
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * 下一个本地时间的刷新边界，按时区偏移对齐（半小时时区、夏令时）
+     *
+     * @param currentTimeMillis 当前墙上时间
+     * @param unit 刷新粒度
+     * @param timeZone 时区
+     * @return 下一个边界的墙上时间
+     */
+    static long nextBoundary(long currentTimeMillis, long unit, TimeZone timeZone) {
+        long offset = timeZone.getOffset(currentTimeMillis);
+        long next = currentTimeMillis + unit - floorMod(currentTimeMillis + offset, unit);
+        /**
+         * 边界前后时区偏移不同（夏令时切换），以边界处的偏移修正；
+         * 偏移差是粒度的整数倍时（如按分钟、小时刷新），原边界在新偏移下仍然对齐，无需修正
+         */
+        long offsetDiff = timeZone.getOffset(next) - offset;
+        if (offsetDiff % unit == 0) {
+            return next;
+        }
+        long corrected = next - offsetDiff;
+        return corrected > currentTimeMillis ? corrected : next;
+    }
+
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,551 @@
+package com.excellence.widget.time;
+
+import android.graphics.Paint;
+import android.text.format.DateFormat;
+import android.util.LruCache;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 预编译的时间格式化
+ *              格式只解析一次，每次格式化写入复用的char[]，不再分配Calendar、StringBuilder及CharSequence
+ *              仅支持{@link DateFormat}中常用字段，包含其他字段时退回{@link DateFormat#format}
+ *              按(格式, 语言, 时区)缓存，相同配置的时钟共用同一个实例，同一时刻只格式化一次
+ * </pre>
+ */
+final class TimeFormatter {
+
+    private static final int MAX_CACHE_SIZE = 32;
+    private static final LruCache<String, TimeFormatter> CACHE = new LruCache<>(MAX_CACHE_SIZE);
+
+    private static final int FIELD_LITERAL = 0;
+    private static final int FIELD_AM_PM = 1;
+    private static final int FIELD_DAY_OF_MONTH = 2;
+    private static final int FIELD_DAY_OF_WEEK = 3;
+    private static final int FIELD_HOUR_1_12 = 4;
+    private static final int FIELD_HOUR_0_23 = 5;
+    private static final int FIELD_HOUR_0_11 = 6;
+    private static final int FIELD_MONTH = 7;
+    private static final int FIELD_MINUTE = 8;
+    private static final int FIELD_SECOND = 9;
+    private static final int FIELD_YEAR = 10;
+
+    private final String mPattern;
+    private final long mTickUnit;
+    private final Calendar mCalendar;
+    private final boolean isFallback;
+
+    private final int[] mFields;
+    private final int[] mCounts;
+    private final String[] mLiterals;
+
+    private final char mZeroDigit;
+    private final String[] mAmPm;
+    private final String[] mShortMonths;
+    private final String[] mMonths;
+    private final String[] mShortWeekdays;
+    private final String[] mWeekdays;
+
+    /**
+     * 格式可能输出的所有字符，不支持图集时为null，见{@link #getGlyphs()}
+     */
+    private final String mGlyphs;
+
+    private char[] mOutput;
+    /**
+     * 上一次格式化的时间及结果长度，同一时刻的多个时钟直接复用
+     */
+    private long mLastTimeMillis = Long.MIN_VALUE;
+    private int mLastLength = 0;
+
+    /**
+     * 获取共享的格式化实例，必须在主线程调用
+     *
+     * @param pattern 格式
+     * @param timeZone 时区，null则使用系统时区
+     * @return
+     */
+    static TimeFormatter obtain(String pattern, TimeZone timeZone) {
+        Locale locale = Locale.getDefault();
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        String key = pattern + '\n' + locale + '\n' + timeZone.getID();
+        TimeFormatter formatter = CACHE.get(key);
+        if (formatter == null) {
+            formatter = new TimeFormatter(pattern, locale, timeZone);
+            CACHE.put(key, formatter);
+        }
+        return formatter;
+    }
+
+    private TimeFormatter(String pattern, Locale locale, TimeZone timeZone) {
+        mPattern = pattern;
+        mTickUnit = TimeBoundary.resolveTickUnit(pattern);
+        mCalendar = Calendar.getInstance(timeZone, locale);
+
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        mZeroDigit = DecimalFormatSymbols.getInstance(locale).getZeroDigit();
+        mAmPm = symbols.getAmPmStrings();
+        mShortMonths = symbols.getShortMonths();
+        mMonths = symbols.getMonths();
+        mShortWeekdays = symbols.getShortWeekdays();
+        mWeekdays = symbols.getWeekdays();
+
+        List<Integer> fields = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        isFallback = !compile(pattern, fields, counts, literals);
+        mFields = new int[fields.size()];
+        mCounts = new int[counts.size()];
+        for (int i = 0; i < mFields.length; i++) {
+            mFields[i] = fields.get(i);
+            mCounts[i] = counts.get(i);
+        }
+        mLiterals = literals.toArray(new String[0]);
+        mGlyphs = isFallback ? null : collectGlyphs();
+        mOutput = new char[Math.max(16, pattern.length() * 2)];
+    }
+
+    /**
+     * @return 刷新粒度，单位ms
+     */
+    long getTickUnit() {
+        return mTickUnit;
+    }
+
+    TimeZone getTimeZone() {
+        return mCalendar.getTimeZone();
+    }
+
+    /**
+     * 格式可能输出的所有字符，用于预先光栅化字形
+     *
+     * @return 不重复的字符，不支持的格式返回null
+     */
+    String getGlyphs() {
+        return mGlyphs;
+    }
+
+    /**
+     * 图集逐个字符绘制，没有字距调整、连字及塑形，只支持数字字段、普通文本及AM/PM；
+     * 包含星期、月份名称，或任一字符需要塑形、从右到左排列时返回null，退回TextView绘制
+     */
+    private String collectGlyphs() {
+        StringBuilder glyphs = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            appendGlyphs(glyphs, String.valueOf((char) (mZeroDigit + i)));
+        }
+        for (int i = 0; i < mFields.length; i++) {
+            switch (mFields[i]) {
+                case FIELD_LITERAL:
+                    appendGlyphs(glyphs, mLiterals[i]);
+                    break;
+
+                case FIELD_AM_PM:
+                    appendGlyphs(glyphs, mAmPm);
+                    break;
+
+                case FIELD_DAY_OF_WEEK:
+                    return null;
+
+                case FIELD_MONTH:
+                    if (mCounts[i] >= 3) {
+                        return null;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        for (int i = 0; i < glyphs.length(); i++) {
+            if (!isSimpleGlyph(glyphs.charAt(i))) {
+                return null;
+            }
+        }
+        return glyphs.toString();
+    }
+
+    /**
+     * 单独绘制与在文本中绘制一致的字符：拉丁、希腊、西里尔字母及中日韩文字、标点；
+     * 组合符号、双向控制符、代理对，及阿拉伯、希伯来、印度、泰文等需要连接或重排的文字都不是
+     */
+    private static boolean isSimpleGlyph(char c) {
+        if (Character.isSurrogate(c)) {
+            return false;
+        }
+        switch (Character.getType(c)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.FORMAT:
+                return false;
+
+            default:
+                break;
+        }
+        if (c < '\u0590') {
+            return true;
+        }
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.GENERAL_PUNCTUATION
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS;
+    }
+
+    private static void appendGlyphs(StringBuilder glyphs, String... texts) {
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (glyphs.indexOf(String.valueOf(c)) < 0) {
+                    glyphs.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * 格式化结果，只读，下一次{@link #format(long)}会覆盖
+     *
+     * @return
+     */
+    char[] getOutput() {
+        return mOutput;
+    }
+
+    /**
+     * 格式化到{@link #getOutput()}
+     *
+     * @param timeMillis 墙上时间
+     * @return 字符长度
+     */
+    int format(long timeMillis) {
+        if (timeMillis != mLastTimeMillis) {
+            mLastLength = formatInternal(timeMillis);
+            mLastTimeMillis = timeMillis;
+        }
+        return mLastLength;
+    }
+
+    private int formatInternal(long timeMillis) {
+        mCalendar.setTimeInMillis(timeMillis);
+        if (isFallback) {
+            CharSequence text = DateFormat.format(mPattern, mCalendar);
+            int length = text.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                mOutput[i] = text.charAt(i);
+            }
+            return length;
+        }
+
+        int length = 0;
+        for (int i = 0; i < mFields.length; i++) {
+            int count = mCounts[i];
+            switch (mFields[i]) {
+                case FIELD_LITERAL:
+                    length = appendText(length, mLiterals[i]);
+                    break;
+
+                case FIELD_AM_PM:
+                    length = appendText(length, mAmPm[mCalendar.get(Calendar.AM_PM)]);
+                    break;
+
+                case FIELD_DAY_OF_MONTH:
+                    length = appendNumber(length, mCalendar.get(Calendar.DAY_OF_MONTH), count);
+                    break;
+
+                case FIELD_DAY_OF_WEEK:
+                    int dayOfWeek = mCalendar.get(Calendar.DAY_OF_WEEK);
+                    length = appendText(length, count < 4 ? mShortWeekdays[dayOfWeek] : mWeekdays[dayOfWeek]);
+                    break;
+
+                case FIELD_HOUR_1_12:
+                    int hour = mCalendar.get(Calendar.HOUR);
+                    length = appendNumber(length, hour == 0 ? 12 : hour, count);
+                    break;
+
+                case FIELD_HOUR_0_23:
+                    length = appendNumber(length, mCalendar.get(Calendar.HOUR_OF_DAY), count);
+                    break;
+
+                case FIELD_HOUR_0_11:
+                    length = appendNumber(length, mCalendar.get(Calendar.HOUR), count);
+                    break;
+
+                case FIELD_MONTH:
+                    int month = mCalendar.get(Calendar.MONTH);
+                    if (count >= 4) {
+                        length = appendText(length, mMonths[month]);
+                    } else if (count == 3) {
+                        length = appendText(length, mShortMonths[month]);
+                    } else {
+                        length = appendNumber(length, month + 1, count);
+                    }
+                    break;
+
+                case FIELD_MINUTE:
+                    length = appendNumber(length, mCalendar.get(Calendar.MINUTE), count);
+                    break;
+
+                case FIELD_SECOND:
+                    length = appendNumber(length, mCalendar.get(Calendar.SECOND), count);
+                    break;
+
+                case FIELD_YEAR:
+                    int year = mCalendar.get(Calendar.YEAR);
+                    length = count == 2 ? appendNumber(length, year % 100, 2) : appendNumber(length, year, count);
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        return length;
+    }
+
+    private int appendText(int offset, String text) {
+        int length = text.length();
+        ensureCapacity(offset + length);
+        text.getChars(0, length, mOutput, offset);
+        return offset + length;
+    }
+
+    private int appendNumber(int offset, int value, int minDigits) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int length = Math.max(digits, minDigits);
+        ensureCapacity(offset + length);
+        int end = offset + length;
+        for (int i = end - 1; i >= offset; i--) {
+            mOutput[i] = (char) (mZeroDigit + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * 格式可能输出的最宽文本宽度：数字按最宽的数字计算，AM/PM、月份、星期按最宽的文本计算
+     *
+     * @param paint 绘制的画笔
+     * @return 宽度，单位px
+     */
+    float measureMaxWidth(Paint paint) {
+        if (isFallback) {
+            return paint.measureText(DateFormat.format(mPattern, System.currentTimeMillis()).toString());
+        }
+
+        float digitWidth = 0;
+        char[] digit = new char[1];
+        for (int i = 0; i < 10; i++) {
+            digit[0] = (char) (mZeroDigit + i);
+            digitWidth = Math.max(digitWidth, paint.measureText(digit, 0, 1));
+        }
+
+        float width = 0;
+        for (int i = 0; i < mFields.length; i++) {
+            int count = mCounts[i];
+            switch (mFields[i]) {
+                case FIELD_LITERAL:
+                    width += paint.measureText(mLiterals[i]);
+                    break;
+
+                case FIELD_AM_PM:
+                    width += measureMaxWidth(paint, mAmPm);
+                    break;
+
+                case FIELD_DAY_OF_WEEK:
+                    width += measureMaxWidth(paint, count < 4 ? mShortWeekdays : mWeekdays);
+                    break;
+
+                case FIELD_MONTH:
+                    if (count >= 4) {
+                        width += measureMaxWidth(paint, mMonths);
+                    } else if (count == 3) {
+                        width += measureMaxWidth(paint, mShortMonths);
+                    } else {
+                        width += digitWidth * Math.max(2, count);
+                    }
+                    break;
+
+                case FIELD_YEAR:
+                    width += digitWidth * (count == 2 ? 2 : Math.max(4, count));
+                    break;
+
+                default:
+                    /**
+                     * 日、时、分、秒最多两位
+                     */
+                    width += digitWidth * Math.max(2, count);
+                    break;
+            }
+        }
+        return width;
+    }
+
+    private static float measureMaxWidth(Paint paint, String[] texts) {
+        float width = 0;
+        for (String text : texts) {
+            if (text != null && !text.isEmpty()) {
+                width = Math.max(width, paint.measureText(text));
+            }
+        }
+        return width;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mOutput.length) {
+            char[] output = new char[Math.max(capacity, mOutput.length * 2)];
+            System.arraycopy(mOutput, 0, output, 0, mOutput.length);
+            mOutput = output;
+        }
+    }
+
+    /**
+     * 解析格式，规则同{@link DateFormat#format}：引号内为普通文本，''表示单引号
+     *
+     * @return 包含不支持的字段时返回false
+     */
+    private static boolean compile(String pattern, List<Integer> fields, List<Integer> counts, List<String> literals) {
+        StringBuilder literal = new StringBuilder();
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < length) {
+                    if (pattern.charAt(end) == '\'') {
+                        if (end + 1 < length && pattern.charAt(end + 1) == '\'') {
+                            literal.append('\'');
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(end));
+                    end++;
+                }
+                i = end + 1;
+                continue;
+            }
+
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+
+            int count = 1;
+            while (i + count < length && pattern.charAt(i + count) == c) {
+                count++;
+            }
+            int field = toField(c);
+            if (field == FIELD_LITERAL || !isSupportedCount(c, count)) {
+                return false;
+            }
+            if (literal.length() > 0) {
+                fields.add(FIELD_LITERAL);
+                counts.add(0);
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            fields.add(field);
+            counts.add(count);
+            literals.add(null);
+            i += count;
+        }
+        if (literal.length() > 0) {
+            fields.add(FIELD_LITERAL);
+            counts.add(0);
+            literals.add(literal.toString());
+        }
+        return true;
+    }
+
+    /**
+     * 独立月份名（LLL、LLLL）、窄名称（EEEEE、MMMMM）在{@link DateFormatSymbols}中没有，退回{@link DateFormat#format}
+     */
+    private static boolean isSupportedCount(char c, int count) {
+        switch (c) {
+            case 'L':
+                return count < 3;
+
+            case 'E':
+            case 'M':
+                return count < 5;
+
+            default:
+                return true;
+        }
+    }
+
+    private static int toField(char c) {
+        switch (c) {
+            case 'a':
+                return FIELD_AM_PM;
+
+            case 'd':
+                return FIELD_DAY_OF_MONTH;
+
+            case 'E':
+                return FIELD_DAY_OF_WEEK;
+
+            case 'h':
+                return FIELD_HOUR_1_12;
+
+            case 'H':
+                return FIELD_HOUR_0_23;
+
+            case 'K':
+                return FIELD_HOUR_0_11;
+
+            case 'k':
+                /**
+                 * 与{@link DateFormat#format}一致，k按0-23处理
+                 */
+                return FIELD_HOUR_0_23;
+
+            case 'L':
+            case 'M':
+                return FIELD_MONTH;
+
+            case 'm':
+                return FIELD_MINUTE;
+
+            case 's':
+                return FIELD_SECOND;
+
+            case 'y':
+                return FIELD_YEAR;
+
+            default:
+                return FIELD_LITERAL;
+        }
+    }
+}
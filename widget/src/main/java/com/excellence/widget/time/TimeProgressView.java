@@ -0,0 +1,180 @@
+package com.excellence.widget.time;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.excellence.widget.R;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 按时间进度填充的进度条，如EPG节目的播放进度
+ *              根据起止时间及宽度计算填充越过下一个整像素的时刻，只在该时刻重绘一次，
+ *              如1小时节目、300px宽，每12秒才重绘一次；所有实例共用{@link ClockTicker}
+ * </pre>
+ */
+public class TimeProgressView extends View implements ClockTicker.OnTickListener {
+
+    private final Paint mTrackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mProgressPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private long mStartTime = 0;
+    private long mEndTime = 0;
+    /**
+     * 当前填充的像素宽度
+     */
+    private int mProgressWidth = 0;
+    private final TickLifecycle mTickLifecycle = new TickLifecycle(this, this);
+
+    public TimeProgressView(Context context) {
+        this(context, null);
+    }
+
+    public TimeProgressView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public TimeProgressView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.TimeProgressView);
+        mTrackPaint.setColor(typedArray.getColor(R.styleable.TimeProgressView_progressTrackColor, 0x33FFFFFF));
+        mProgressPaint.setColor(typedArray.getColor(R.styleable.TimeProgressView_progressFillColor, 0xFFFFFFFF));
+        typedArray.recycle();
+    }
+
+    /**
+     * 设置起止时间
+     *
+     * @param startTime 开始的墙上时间
+     * @param endTime 结束的墙上时间
+     */
+    public void setTime(long startTime, long endTime) {
+        mStartTime = startTime;
+        mEndTime = endTime;
+        refresh();
+    }
+
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    public void setTrackColor(int color) {
+        mTrackPaint.setColor(color);
+        invalidate();
+    }
+
+    public void setProgressColor(int color) {
+        mProgressPaint.setColor(color);
+        invalidate();
+    }
+
+    @Override
+    public long onTick(long currentTimeMillis) {
+        int width = getContentWidth();
+        long duration = mEndTime - mStartTime;
+        if (width <= 0 || duration <= 0) {
+            updateProgressWidth(0);
+            return ClockTicker.NO_TICK;
+        }
+        if (currentTimeMillis < mStartTime) {
+            updateProgressWidth(0);
+            return mStartTime;
+        }
+        if (currentTimeMillis >= mEndTime) {
+            updateProgressWidth(width);
+            return ClockTicker.NO_TICK;
+        }
+        int progressWidth = (int) ((currentTimeMillis - mStartTime) * width / duration);
+        updateProgressWidth(progressWidth);
+        /**
+         * 填充到达下一个整像素的时刻：(px + 1) * duration / width，向上取整
+         */
+        long next = ((progressWidth + 1) * duration + width - 1) / width;
+        return mStartTime + next;
+    }
+
+    private void updateProgressWidth(int progressWidth) {
+        if (mProgressWidth != progressWidth) {
+            mProgressWidth = progressWidth;
+            invalidate();
+        }
+    }
+
+    private int getContentWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    /**
+     * 起止时间、尺寸变化后立即刷新并重新计算下一个像素边界
+     */
+    private void refresh() {
+        mTickLifecycle.refresh();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        refresh();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float right = getWidth() - getPaddingRight();
+        float bottom = getHeight() - getPaddingBottom();
+        canvas.drawRect(left, top, right, bottom, mTrackPaint);
+        if (mProgressWidth > 0) {
+            canvas.drawRect(left, top, left + mProgressWidth, bottom, mProgressPaint);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mTickLifecycle.setAttached(true);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mTickLifecycle.setAttached(false);
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        updateTicking();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateTicking();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateTicking();
+    }
+
+    private void updateTicking() {
+        /**
+         * 父类构造时（如xml设置visibility）可能已回调可见性变化，此时尚未初始化，也未挂载
+         */
+        if (mTickLifecycle != null) {
+            mTickLifecycle.update();
+        }
+    }
+}
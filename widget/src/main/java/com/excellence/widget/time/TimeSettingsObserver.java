@@ -0,0 +1,131 @@
+package com.excellence.widget.time;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.text.format.DateFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ *     author : VeiZhang
+ *     blog   : http://tiimor.cn
+ *     time   : 2020/6/1
+ *     desc   : 进程内共享的时间设置监听
+ *              只监听12/24小时制、时区、语言变化，缓存24小时制结果，变化时通知所有订阅的时钟
+ * </pre>
+ */
+public final class TimeSettingsObserver {
+
+    private static TimeSettingsObserver sInstance = null;
+
+    private final Handler mHandler;
+    private final List<OnTimeSettingsChangedListener> mListeners = new ArrayList<>();
+    private final List<OnTimeSettingsChangedListener> mDispatching = new ArrayList<>();
+    private final ContentObserver mFormatChangeObserver;
+    private final BroadcastReceiver mReceiver;
+    private Context mContext = null;
+    private boolean is24HourFormat = false;
+
+    public static TimeSettingsObserver getInstance() {
+        if (sInstance == null) {
+            sInstance = new TimeSettingsObserver();
+        }
+        return sInstance;
+    }
+
+    private TimeSettingsObserver() {
+        mHandler = new Handler(Looper.getMainLooper());
+        mFormatChangeObserver = new ContentObserver(mHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                notifyChanged();
+            }
+        };
+        mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                notifyChanged();
+            }
+        };
+    }
+
+    /**
+     * 是否24小时制，监听中时直接返回缓存
+     *
+     * @param context
+     * @return
+     */
+    public boolean is24HourFormat(Context context) {
+        if (mContext != null) {
+            return is24HourFormat;
+        }
+        return DateFormat.is24HourFormat(context);
+    }
+
+    /**
+     * 订阅，必须在主线程调用；第一个订阅者注册系统监听
+     *
+     * @param context
+     * @param listener 订阅者
+     */
+    public void register(Context context, OnTimeSettingsChangedListener listener) {
+        if (listener == null || mListeners.contains(listener)) {
+            return;
+        }
+        mListeners.add(listener);
+        if (mContext == null) {
+            mContext = context.getApplicationContext();
+            is24HourFormat = DateFormat.is24HourFormat(mContext);
+            mContext.getContentResolver().registerContentObserver(
+                    Settings.System.getUriFor(Settings.System.TIME_12_24), false, mFormatChangeObserver);
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+            mContext.registerReceiver(mReceiver, filter, null, mHandler);
+        }
+    }
+
+    /**
+     * 取消订阅，必须在主线程调用；最后一个订阅者取消时注销系统监听
+     *
+     * @param listener 订阅者
+     */
+    public void unregister(OnTimeSettingsChangedListener listener) {
+        if (!mListeners.remove(listener) || !mListeners.isEmpty() || mContext == null) {
+            return;
+        }
+        mContext.getContentResolver().unregisterContentObserver(mFormatChangeObserver);
+        mContext.unregisterReceiver(mReceiver);
+        mContext = null;
+    }
+
+    private void notifyChanged() {
+        if (mContext == null) {
+            return;
+        }
+        is24HourFormat = DateFormat.is24HourFormat(mContext);
+        mDispatching.addAll(mListeners);
+        for (OnTimeSettingsChangedListener listener : mDispatching) {
+            if (mListeners.contains(listener)) {
+                listener.onTimeSettingsChanged();
+            }
+        }
+        mDispatching.clear();
+    }
+
+    public interface OnTimeSettingsChangedListener {
+
+        /**
+         * 12/24小时制、时区或语言变化
+         */
+        void onTimeSettingsChanged();
+    }
+}
@@ -0,0 +1,252 @@
+package com.excellence.widget.time;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.widget.LinearLayout;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ClockTicker}：所有订阅者共用一个消息，挂载的时钟每次跨过边界只处理一个消息；虚拟时钟下的刷新延迟、提前到达的消息重新投递
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.LEGACY)
+public class ClockTickerTest {
+
+    private static final int LISTENER_COUNT = 100;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    /**
+     * 虚拟时钟的起点：2020-06-01 00:00:00.500 UTC
+     */
+    private static final long START_TIME_MILLIS = 1590969600500L;
+    private static final long FRAME_MILLIS = 16;
+
+    private final List<ClockTicker.OnTickListener> mListeners = new ArrayList<>();
+    private ClockTicker mTicker = null;
+    private final FakeTimeSource mTimeSource = new FakeTimeSource();
+
+    @After
+    public void tearDown() {
+        for (ClockTicker.OnTickListener listener : mListeners) {
+            ClockTicker.getInstance().unregister(listener);
+            if (mTicker != null) {
+                mTicker.unregister(listener);
+            }
+        }
+    }
+
+    @Test
+    public void attachedClocks_oneMessagePerTick() {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+        Activity activity = controller.get();
+        LinearLayout layout = new LinearLayout(activity);
+        List<ClockTextView> clocks = new ArrayList<>();
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            ClockTextView clock = new ClockTextView(activity);
+            clock.setTimeFormat("ss");
+            clocks.add(clock);
+            mListeners.add(clock);
+            layout.addView(clock);
+        }
+        activity.setContentView(layout);
+        controller.start().resume().visible();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals(LISTENER_COUNT, ClockTicker.getInstance().getListenerCount());
+        int second = assertSameText(clocks);
+        for (int tick = 0; tick < 5; tick++) {
+            /**
+             * 所有时钟只有一个待处理的消息，跨过整秒后全部刷新
+             */
+            assertEquals(1, getScheduler().size());
+            getScheduler().advanceBy(1, TimeUnit.SECONDS);
+            int nextSecond = assertSameText(clocks);
+            assertEquals((second + 1) % 60, nextSecond);
+            second = nextSecond;
+        }
+        assertEquals(1, getScheduler().size());
+
+        /**
+         * 全部移除后不再有消息
+         */
+        layout.removeAllViews();
+        assertEquals(0, ClockTicker.getInstance().getListenerCount());
+        ShadowLooper.idleMainLooper();
+        assertEquals(0, getScheduler().size());
+    }
+
+    @Test
+    public void secondsClock_lagUnderOneFrame() {
+        mTicker = new ClockTicker(mTimeSource);
+        RecordingListener listener = new RecordingListener(DateUtils.SECOND_IN_MILLIS);
+        mListeners.add(listener);
+        mTicker.register(RuntimeEnvironment.application, listener);
+
+        getScheduler().advanceBy(10, TimeUnit.MINUTES);
+
+        /**
+         * 注册时立即刷新一次，之后每个整秒一次
+         */
+        assertEquals(1 + 600, listener.tickCount);
+        assertTrue("max lag " + listener.maxLagMillis, listener.maxLagMillis < FRAME_MILLIS);
+    }
+
+    @Test
+    public void manyClocks_sameBoundary_refreshTogether() {
+        mTicker = new ClockTicker(mTimeSource);
+        List<RecordingListener> listeners = new ArrayList<>();
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            RecordingListener listener = new RecordingListener(DateUtils.MINUTE_IN_MILLIS);
+            listeners.add(listener);
+            mListeners.add(listener);
+            mTicker.register(RuntimeEnvironment.application, listener);
+        }
+
+        for (int minute = 0; minute < 5; minute++) {
+            assertEquals(1, getScheduler().size());
+            getScheduler().advanceBy(1, TimeUnit.MINUTES);
+        }
+
+        for (RecordingListener listener : listeners) {
+            assertEquals(1 + 5, listener.tickCount);
+            assertTrue(listener.maxLagMillis < FRAME_MILLIS);
+        }
+    }
+
+    @Test
+    public void earlyMessage_repostsUntilBoundary() {
+        mTicker = new ClockTicker(mTimeSource);
+        RecordingListener listener = new RecordingListener(DateUtils.MINUTE_IN_MILLIS);
+        mListeners.add(listener);
+        mTicker.register(RuntimeEnvironment.application, listener);
+        assertEquals(1, listener.tickCount);
+
+        /**
+         * 墙上时间悄悄回拨500ms（没有ACTION_TIME_CHANGED），按uptime投递的消息会提前到达
+         */
+        mTimeSource.wallOffsetMillis -= 500;
+        getScheduler().advanceBy(DateUtils.MINUTE_IN_MILLIS - 500, TimeUnit.MILLISECONDS);
+        assertEquals(1, listener.tickCount);
+        assertEquals(1, getScheduler().size());
+
+        getScheduler().advanceBy(499, TimeUnit.MILLISECONDS);
+        assertEquals(1, listener.tickCount);
+        assertEquals(1, getScheduler().size());
+
+        getScheduler().advanceBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(2, listener.tickCount);
+        assertTrue("max lag " + listener.maxLagMillis, listener.maxLagMillis < FRAME_MILLIS);
+        assertEquals(1, getScheduler().size());
+    }
+
+    @Test
+    public void registerManyListeners_singlePendingMessage() {
+        ClockTicker ticker = ClockTicker.getInstance();
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            ClockTicker.OnTickListener listener = currentTimeMillis ->
+                    TimeBoundary.nextBoundary(currentTimeMillis, DateUtils.SECOND_IN_MILLIS, UTC);
+            mListeners.add(listener);
+            ticker.register(RuntimeEnvironment.application, listener);
+        }
+
+        assertEquals(LISTENER_COUNT, ticker.getListenerCount());
+        assertEquals(1, ShadowLooper.getShadowMainLooper().getScheduler().size());
+    }
+
+    @Test
+    public void unregisterAllListeners_noPendingMessage() {
+        ClockTicker ticker = ClockTicker.getInstance();
+        for (int i = 0; i < LISTENER_COUNT; i++) {
+            ClockTicker.OnTickListener listener = currentTimeMillis ->
+                    TimeBoundary.nextBoundary(currentTimeMillis, DateUtils.MINUTE_IN_MILLIS, UTC);
+            mListeners.add(listener);
+            ticker.register(RuntimeEnvironment.application, listener);
+        }
+        for (ClockTicker.OnTickListener listener : mListeners) {
+            ticker.unregister(listener);
+        }
+        mListeners.clear();
+
+        assertEquals(0, ticker.getListenerCount());
+        assertEquals(0, ShadowLooper.getShadowMainLooper().getScheduler().size());
+    }
+
+    /**
+     * @return 所有时钟显示的秒数，必须一致
+     */
+    private static int assertSameText(List<ClockTextView> clocks) {
+        String text = clocks.get(0).getText().toString();
+        for (ClockTextView clock : clocks) {
+            assertEquals(text, clock.getText().toString());
+        }
+        return Integer.parseInt(text);
+    }
+
+    private static Scheduler getScheduler() {
+        return ShadowLooper.getShadowMainLooper().getScheduler();
+    }
+
+    /**
+     * 墙上时间 = uptime + 偏移，uptime由Robolectric的调度器推进
+     */
+    private static class FakeTimeSource implements ClockTicker.TimeSource {
+
+        private long wallOffsetMillis = START_TIME_MILLIS - SystemClock.uptimeMillis();
+
+        @Override
+        public long currentTimeMillis() {
+            return SystemClock.uptimeMillis() + wallOffsetMillis;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * 按粒度刷新，记录刷新次数及相对边界的最大延迟
+     */
+    private static class RecordingListener implements ClockTicker.OnTickListener {
+
+        private final long unit;
+        private long nextTimeMillis = ClockTicker.NO_TICK;
+        private int tickCount = 0;
+        private long maxLagMillis = 0;
+
+        private RecordingListener(long unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public long onTick(long currentTimeMillis) {
+            if (nextTimeMillis != ClockTicker.NO_TICK) {
+                assertTrue("tick before boundary", currentTimeMillis >= nextTimeMillis);
+                maxLagMillis = Math.max(maxLagMillis, currentTimeMillis - nextTimeMillis);
+            }
+            tickCount++;
+            nextTimeMillis = TimeBoundary.nextBoundary(currentTimeMillis, unit, UTC);
+            return nextTimeMillis;
+        }
+    }
+}
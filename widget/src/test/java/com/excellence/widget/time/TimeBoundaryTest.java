@@ -0,0 +1,122 @@
+package com.excellence.widget.time;
+
+import android.text.format.DateUtils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link TimeBoundary}：按虚拟时钟统计一天内每种格式的刷新次数
+ */
+public class TimeBoundaryTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone KOLKATA = TimeZone.getTimeZone("Asia/Kolkata");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void resolveTickUnit() {
+        assertEquals(DateUtils.SECOND_IN_MILLIS, TimeBoundary.resolveTickUnit("ss"));
+        assertEquals(DateUtils.MINUTE_IN_MILLIS, TimeBoundary.resolveTickUnit("HH:mm"));
+        assertEquals(DateUtils.HOUR_IN_MILLIS, TimeBoundary.resolveTickUnit("h a"));
+        assertEquals(DateUtils.DAY_IN_MILLIS, TimeBoundary.resolveTickUnit("yyyy-MM-dd"));
+        /**
+         * 引号内的s是普通文本
+         */
+        assertEquals(DateUtils.MINUTE_IN_MILLIS, TimeBoundary.resolveTickUnit("HH:mm 's'"));
+        assertEquals(DateUtils.MINUTE_IN_MILLIS, TimeBoundary.resolveTickUnit("HH 'o''s' mm"));
+    }
+
+    @Test
+    public void redrawsPerDay() {
+        long start = time(UTC, 2020, Calendar.JUNE, 1, 0, 0);
+        long end = start + DateUtils.DAY_IN_MILLIS;
+        assertEquals(86400, countRedraws("ss", start, end, UTC));
+        assertEquals(1440, countRedraws("HH:mm", start, end, UTC));
+        assertEquals(24, countRedraws("h a", start, end, UTC));
+        assertEquals(1, countRedraws("yyyy-MM-dd", start, end, UTC));
+        assertEquals(1440, countRedraws("HH:mm 's'", start, end, UTC));
+    }
+
+    @Test
+    public void halfHourZone_alignsToLocalHour() {
+        /**
+         * +05:30：本地15:40的下一个整点是本地16:00，即UTC 10:30
+         */
+        long current = time(KOLKATA, 2020, Calendar.JUNE, 1, 15, 40);
+        assertEquals(time(KOLKATA, 2020, Calendar.JUNE, 1, 16, 0),
+                TimeBoundary.nextBoundary(current, DateUtils.HOUR_IN_MILLIS, KOLKATA));
+        assertEquals(time(KOLKATA, 2020, Calendar.JUNE, 2, 0, 0),
+                TimeBoundary.nextBoundary(current, DateUtils.DAY_IN_MILLIS, KOLKATA));
+
+        long start = time(KOLKATA, 2020, Calendar.JUNE, 1, 0, 0);
+        long end = start + DateUtils.DAY_IN_MILLIS;
+        assertEquals(24, countRedraws("h a", start, end, KOLKATA));
+        assertEquals(1, countRedraws("yyyy-MM-dd", start, end, KOLKATA));
+    }
+
+    @Test
+    public void dstSpringForward() {
+        /**
+         * 2020-03-08 02:00 EST跳到03:00 EDT，当天只有23小时
+         */
+        long start = time(NEW_YORK, 2020, Calendar.MARCH, 8, 0, 0);
+        long end = time(NEW_YORK, 2020, Calendar.MARCH, 9, 0, 0);
+        assertEquals(23 * DateUtils.HOUR_IN_MILLIS, end - start);
+        assertEquals(23 * 60, countRedraws("HH:mm", start, end, NEW_YORK));
+        assertEquals(23, countRedraws("h a", start, end, NEW_YORK));
+        assertEquals(1, countRedraws("yyyy-MM-dd", start, end, NEW_YORK));
+
+        long beforeJump = time(NEW_YORK, 2020, Calendar.MARCH, 8, 1, 30);
+        assertEquals(time(NEW_YORK, 2020, Calendar.MARCH, 8, 3, 0),
+                TimeBoundary.nextBoundary(beforeJump, DateUtils.HOUR_IN_MILLIS, NEW_YORK));
+        assertEquals(end, TimeBoundary.nextBoundary(beforeJump, DateUtils.DAY_IN_MILLIS, NEW_YORK));
+    }
+
+    @Test
+    public void dstFallBack() {
+        /**
+         * 2020-11-01 02:00 EDT退回01:00 EST，当天有25小时；回退的一小时内分钟照常刷新
+         */
+        long start = time(NEW_YORK, 2020, Calendar.NOVEMBER, 1, 0, 0);
+        long end = time(NEW_YORK, 2020, Calendar.NOVEMBER, 2, 0, 0);
+        assertEquals(25 * DateUtils.HOUR_IN_MILLIS, end - start);
+        assertEquals(25 * 60, countRedraws("HH:mm", start, end, NEW_YORK));
+        assertEquals(1, countRedraws("yyyy-MM-dd", start, end, NEW_YORK));
+
+        long beforeFallBack = start + DateUtils.HOUR_IN_MILLIS + 59 * DateUtils.MINUTE_IN_MILLIS + 30 * DateUtils.SECOND_IN_MILLIS;
+        assertEquals(beforeFallBack + 30 * DateUtils.SECOND_IN_MILLIS,
+                TimeBoundary.nextBoundary(beforeFallBack, DateUtils.MINUTE_IN_MILLIS, NEW_YORK));
+    }
+
+    /**
+     * 虚拟时钟：每次跳到下一个边界，统计(start, end]内的刷新次数
+     */
+    private static int countRedraws(String pattern, long start, long end, TimeZone timeZone) {
+        long unit = TimeBoundary.resolveTickUnit(pattern);
+        int count = 0;
+        long current = start;
+        while (true) {
+            long next = TimeBoundary.nextBoundary(current, unit, timeZone);
+            if (next <= current) {
+                throw new AssertionError("boundary not advancing at " + current);
+            }
+            if (next > end) {
+                return count;
+            }
+            current = next;
+            count++;
+        }
+    }
+
+    private static long time(TimeZone timeZone, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,132 @@
+package com.excellence.widget.time;
+
+import android.text.format.DateFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TimeFormatter}与{@link DateFormat#format}的微基准：每次格式化的耗时及分配字节数
+ * 耗时及分配字节数按当前线程统计（{@link com.sun.management.ThreadMXBean}，Robolectric会接管System.nanoTime），
+ * 预热后每个格式连续格式化{@link #OPS}个整秒
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TimeFormatterBenchmarkTest {
+
+    private static final String[] PATTERNS = {"HH:mm", "HH:mm:ss", "hh:mm a", "yyyy-MM-dd HH:mm:ss"};
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("Asia/Shanghai");
+    /**
+     * 2020-06-01 00:00:00 UTC
+     */
+    private static final long START_TIME_MILLIS = 1590969600000L;
+    private static final int WARMUP_OPS = 50_000;
+    private static final int OPS = 100_000;
+
+    private final com.sun.management.ThreadMXBean mThreadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private Locale mDefaultLocale = null;
+
+    @Before
+    public void setUp() {
+        mDefaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.US);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+    }
+
+    @Test
+    public void compiledFormatter_matchesDateFormat() {
+        Calendar calendar = Calendar.getInstance(TIME_ZONE, Locale.US);
+        for (String pattern : PATTERNS) {
+            TimeFormatter formatter = TimeFormatter.obtain(pattern, TIME_ZONE);
+            for (int i = 0; i < 24 * 60; i++) {
+                long timeMillis = START_TIME_MILLIS + i * 61_000L;
+                calendar.setTimeInMillis(timeMillis);
+                int length = formatter.format(timeMillis);
+                assertEquals(pattern, DateFormat.format(pattern, calendar).toString(),
+                        new String(formatter.getOutput(), 0, length));
+            }
+        }
+    }
+
+    @Test
+    public void compiledFormatter_allocationFree() {
+        for (String pattern : PATTERNS) {
+            Result dateFormat = measureDateFormat(pattern);
+            Result compiled = measureCompiled(pattern);
+            System.out.println(String.format(Locale.US,
+                    "%-20s DateFormat: %8.1f ns/op %8.1f B/op | TimeFormatter: %8.1f ns/op %8.1f B/op",
+                    pattern, dateFormat.nanosPerOp, dateFormat.bytesPerOp, compiled.nanosPerOp, compiled.bytesPerOp));
+            /**
+             * 复用Calendar及char[]，稳定后不再分配；DateFormat每次至少分配结果文本
+             */
+            assertTrue(pattern + " allocates " + compiled.bytesPerOp + " B/op", compiled.bytesPerOp < 1);
+            assertTrue(dateFormat.bytesPerOp > compiled.bytesPerOp);
+        }
+    }
+
+    private Result measureDateFormat(String pattern) {
+        Calendar calendar = Calendar.getInstance(TIME_ZONE, Locale.US);
+        int sink = 0;
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            calendar.setTimeInMillis(START_TIME_MILLIS + i * 1000L);
+            sink += DateFormat.format(pattern, calendar).length();
+        }
+        long threadId = Thread.currentThread().getId();
+        long startBytes = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        long startNanos = mThreadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < OPS; i++) {
+            calendar.setTimeInMillis(START_TIME_MILLIS + (WARMUP_OPS + i) * 1000L);
+            sink += DateFormat.format(pattern, calendar).length();
+        }
+        long elapsedNanos = mThreadMXBean.getCurrentThreadCpuTime() - startNanos;
+        long bytes = mThreadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        assertTrue(sink > 0);
+        return new Result(elapsedNanos, bytes);
+    }
+
+    private Result measureCompiled(String pattern) {
+        TimeFormatter formatter = TimeFormatter.obtain(pattern, TIME_ZONE);
+        int sink = 0;
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            sink += formatter.format(START_TIME_MILLIS + i * 1000L);
+        }
+        long threadId = Thread.currentThread().getId();
+        long startBytes = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        long startNanos = mThreadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < OPS; i++) {
+            sink += formatter.format(START_TIME_MILLIS + (WARMUP_OPS + i) * 1000L);
+        }
+        long elapsedNanos = mThreadMXBean.getCurrentThreadCpuTime() - startNanos;
+        long bytes = mThreadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+        assertTrue(sink > 0);
+        return new Result(elapsedNanos, bytes);
+    }
+
+    private static class Result {
+
+        private final double nanosPerOp;
+        private final double bytesPerOp;
+
+        private Result(long elapsedNanos, long bytes) {
+            nanosPerOp = (double) elapsedNanos / OPS;
+            bytesPerOp = (double) bytes / OPS;
+        }
+    }
+}